@@ -0,0 +1,147 @@
+package com.gbai.storage_ms.benchmark;
+
+import com.gbai.storage_ms.layout.CompetitionBucketLayout;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.PresignedUrlResponse;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import com.gbai.storage_ms.service.BucketRegistry;
+import com.gbai.storage_ms.service.MetadataCache;
+import com.gbai.storage_ms.service.MetadataWriter;
+import com.gbai.storage_ms.service.PresignedUrlCache;
+import com.gbai.storage_ms.service.StorageService;
+import com.gbai.storage_ms.service.StorageStatistics;
+import com.gbai.storage_ms.service.UploadDeduplicator;
+import com.gbai.storage_ms.service.UploadTracker;
+import com.gbai.storage_ms.storage.LocalSigV4Presigner;
+import com.gbai.storage_ms.storage.MinioIoExecutor;
+import com.gbai.storage_ms.storage.SdkUrlPresigner;
+import com.gbai.storage_ms.storage.SyncMinioStorageBackend;
+import com.gbai.storage_ms.storage.UrlPresigner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.BucketExistsArgs;
+import io.minio.MinioClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Upload and download URL issuance through {@link StorageService} with everything
+ * remote stubbed out: the MinIO client signs locally (the region is pinned) and
+ * reports every bucket as existing, and the repository answers from memory. What is
+ * left is the service's own work: ids, signing, metadata mapping and the reactive
+ * plumbing. MinIO calls run on the calling thread rather than the I/O scheduler.
+ */
+@State(Scope.Benchmark)
+public class PresignBenchmark {
+    private static final String ENDPOINT = "http://minio:9000";
+    private static final String ACCESS_KEY = "benchmark-access-key";
+    private static final String SECRET_KEY = "benchmark-secret-key";
+    private static final String REGION = "us-east-1";
+
+    @Param({"sdk", "local"})
+    public String presigner;
+
+    @Param({"true", "false"})
+    public boolean presignCache;
+
+    private MetadataWriter metadataWriter;
+    private StorageService storageService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MinioIoExecutor minioIo = new MinioIoExecutor(Schedulers.immediate(), Duration.ofSeconds(5), meterRegistry);
+        SyncMinioStorageBackend storageBackend = new SyncMinioStorageBackend(new StubMinioClient(), minioIo);
+        UrlPresigner urlPresigner = "local".equals(presigner)
+                ? new LocalSigV4Presigner(ENDPOINT, ACCESS_KEY, SECRET_KEY, REGION)
+                : new SdkUrlPresigner(storageBackend);
+        VideoMetadataRepository repository = inMemoryRepository();
+        MetadataCache metadataCache = new MetadataCache(repository, meterRegistry, null, true, DataSize.ofMegabytes(64),
+                Duration.ofMinutes(10), Duration.ofSeconds(5), false, "unused");
+        metadataWriter = new MetadataWriter(repository, null, metadataCache,
+                new StorageStatistics(null, false, Duration.ofSeconds(1), Duration.ZERO), Optional.empty(), "direct", 64, 8192,
+                Duration.ofSeconds(5), 500, Duration.ofMillis(100));
+        metadataWriter.start();
+        ObjectLayouts objectLayouts = new ObjectLayouts(CompetitionBucketLayout.NAME, "videos");
+        storageService = new StorageService(storageBackend, urlPresigner,
+                new BucketRegistry(storageBackend, meterRegistry, Duration.ofMinutes(10), 10_000), objectLayouts,
+                new PresignedUrlCache(meterRegistry, presignCache, 50_000, Duration.ofMinutes(15), Duration.ofMinutes(30), 3600),
+                repository, metadataCache, metadataWriter, null, new UploadTracker(repository, metadataWriter, objectLayouts, ""),
+                new UploadDeduplicator(repository, metadataWriter, objectLayouts, false));
+        setField(storageService, "defaultExpiry", 3600);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        metadataWriter.stop();
+    }
+
+    @Benchmark
+    public PresignedUrlResponse presignedUpload() {
+        return storageService.generatePresignedUploadUrl("comp1", "user1", "final-round.mp4", "video/mp4", 52_428_800L).block();
+    }
+
+    @Benchmark
+    public PresignedUrlResponse presignedDownload() {
+        return storageService.generatePresignedDownloadUrl("7f1c2a9e-5b3d-4c8e-9a61-0d2f4b6c8e10").block();
+    }
+
+    private static VideoMetadataRepository inMemoryRepository() {
+        VideoMetadata video = new VideoMetadata();
+        video.setId("7f1c2a9e-5b3d-4c8e-9a61-0d2f4b6c8e10");
+        video.setCompetitionId("comp1");
+        video.setUploaderId("user1");
+        video.setOriginalFilename("final-round.mp4");
+        video.setStoredFilename(video.getId() + "-final-round.mp4");
+        video.setContentType("video/mp4");
+        video.setFileSize(52_428_800L);
+        video.setUploadTimestamp(Instant.parse("2024-01-01T00:00:00Z"));
+        video.setUploadStatus(UploadStatus.COMPLETE);
+        return (VideoMetadataRepository) Proxy.newProxyInstance(VideoMetadataRepository.class.getClassLoader(),
+                new Class<?>[]{VideoMetadataRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> Mono.just(args[0]);
+                    case "findById" -> Mono.just(video);
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryVideoMetadataRepository";
+                    default -> Mono.empty();
+                });
+    }
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * Signs for real but never talks to a server: with the region pinned the SDK has
+     * nothing to look up, and every bucket exists.
+     */
+    private static final class StubMinioClient extends MinioClient {
+        StubMinioClient() {
+            super(MinioClient.builder().endpoint(ENDPOINT).credentials(ACCESS_KEY, SECRET_KEY).region(REGION).build());
+        }
+
+        @Override
+        public boolean bucketExists(BucketExistsArgs args) {
+            return true;
+        }
+    }
+}
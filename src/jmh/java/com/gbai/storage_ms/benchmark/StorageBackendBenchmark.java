@@ -0,0 +1,106 @@
+package com.gbai.storage_ms.benchmark;
+
+import com.gbai.storage_ms.storage.AsyncMinioStorageBackend;
+import com.gbai.storage_ms.storage.MinioIoExecutor;
+import com.gbai.storage_ms.storage.StorageBackend;
+import com.gbai.storage_ms.storage.SyncMinioStorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.BucketExistsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sync and async MinIO backends issuing {@link #CONCURRENCY} concurrent
+ * stat/remove operations. Needs a reachable MinIO, configured with
+ * {@code -Dbench.minio.url}, {@code -Dbench.minio.access-key} and {@code -Dbench.minio.secret-key}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class StorageBackendBenchmark {
+    static final int CONCURRENCY = 2000;
+    private static final String BUCKET = "bench-backend";
+    private static final String OBJECT = "stat-target";
+
+    @Param({"sync", "async"})
+    public String backend;
+
+    @Param({"8", "64"})
+    public int ioThreads;
+
+    private Scheduler scheduler;
+    private StorageBackend storageBackend;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String url = System.getProperty("bench.minio.url", "http://localhost:9000");
+        String accessKey = System.getProperty("bench.minio.access-key", "minioadmin");
+        String secretKey = System.getProperty("bench.minio.secret-key", "minioadmin");
+
+        MinioClient minioClient = MinioClient.builder().endpoint(url).credentials(accessKey, secretKey).build();
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(BUCKET).build())) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(BUCKET).build());
+        }
+        byte[] payload = new byte[1024];
+        minioClient.putObject(PutObjectArgs.builder()
+                .bucket(BUCKET)
+                .object(OBJECT)
+                .stream(new ByteArrayInputStream(payload), payload.length, -1)
+                .build());
+
+        scheduler = Schedulers.newBoundedElastic(ioThreads, Integer.MAX_VALUE, "bench-minio-io");
+        MinioIoExecutor minioIo = new MinioIoExecutor(scheduler, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        storageBackend = "async".equals(backend)
+                ? new AsyncMinioStorageBackend(MinioAsyncClient.builder().endpoint(url).credentials(accessKey, secretKey).build(), minioIo)
+                : new SyncMinioStorageBackend(minioClient, minioIo);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public Object statObject() {
+        return Flux.range(0, CONCURRENCY)
+                .flatMap(i -> storageBackend.statObject(BUCKET, OBJECT), CONCURRENCY)
+                .blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public Object removeMissingObject() {
+        // Removing an absent key is a full round trip that leaves the bucket unchanged
+        return Flux.range(0, CONCURRENCY)
+                .flatMap(i -> storageBackend.removeObject(BUCKET, "missing-" + i).then(Mono.just(i)), CONCURRENCY)
+                .blockLast();
+    }
+}
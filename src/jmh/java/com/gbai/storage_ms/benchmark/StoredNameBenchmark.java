@@ -0,0 +1,41 @@
+package com.gbai.storage_ms.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The file id and stored object name built for every issued upload URL, as
+ * {@code StorageService} does it, next to an id drawn from {@link ThreadLocalRandom}
+ * instead of the shared {@code SecureRandom} behind {@link UUID#randomUUID()}. The
+ * contended variant shows what the shared generator costs under concurrent uploads.
+ */
+@State(Scope.Benchmark)
+public class StoredNameBenchmark {
+    private static final String ORIGINAL_FILENAME = "final-round.mp4";
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString() + "-" + ORIGINAL_FILENAME;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String randomUuidContended() {
+        return UUID.randomUUID().toString() + "-" + ORIGINAL_FILENAME;
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String threadLocalRandomUuidContended() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Version 4, IETF variant, like UUID.randomUUID()
+        long most = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long least = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48);
+        return new UUID(most, least).toString() + "-" + ORIGINAL_FILENAME;
+    }
+}
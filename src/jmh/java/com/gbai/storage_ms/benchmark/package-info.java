@@ -0,0 +1,17 @@
+/**
+ * JMH benchmarks, kept out of the application jar in their own {@code src/jmh/java}
+ * source set. They need the main classes and their dependencies plus {@code jmh-core}
+ * and {@code jmh-generator-annprocess} on the classpath; the annotation processor runs
+ * as part of compilation and generates the benchmark harness.
+ *
+ * <p>{@code src/jmh/java} is the layout of the Gradle JMH plugin
+ * ({@code me.champeau.jmh}): with it applied, {@code ./gradlew jmh} builds and runs
+ * them. With Maven, a {@code jmh} profile adds the directory as a test source root
+ * (build-helper's {@code add-test-source}) and the two JMH artifacts in test scope,
+ * after which {@link com.gbai.storage_ms.benchmark.BenchmarkRunner} runs from the test
+ * classpath, e.g. {@code mvn -Pjmh test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=com.gbai.storage_ms.benchmark.BenchmarkRunner}.
+ * Without a build tool, compiling the directory with {@code javac} against that
+ * classpath and running the runner's {@code main} does the same.
+ */
+package com.gbai.storage_ms.benchmark;
@@ -0,0 +1,105 @@
+package com.gbai.storage_ms.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Small in-process LRU cache with per-entry expiry and a weight bound. Hits, misses,
+ * evictions, size and weight are published under the {@code cache.*} meters tagged
+ * with the cache name, so every instance shows up in actuator the same way.
+ */
+public class BoundedCache<K, V> {
+    private final long maxWeight;
+    private final ToLongBiFunction<K, V> weigher;
+    private final Clock clock;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public BoundedCache(String name, long maxEntries, Clock clock, MeterRegistry meterRegistry) {
+        this(name, maxEntries, (key, value) -> 1L, clock, meterRegistry);
+    }
+
+    public BoundedCache(String name, long maxWeight, ToLongBiFunction<K, V> weigher, Clock clock, MeterRegistry meterRegistry) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.clock = clock;
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", name).register(meterRegistry);
+        Gauge.builder("cache.size", this, BoundedCache::size).tag("cache", name).register(meterRegistry);
+        Gauge.builder("cache.weight", this, BoundedCache::weight).tag("cache", name).register(meterRegistry);
+    }
+
+    public synchronized V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAtMillis <= clock.millis()) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value, Duration ttl) {
+        long entryWeight = weigher.applyAsLong(key, value);
+        if (entryWeight > maxWeight || ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry<>(value, entryWeight, clock.millis() + ttl.toMillis()));
+        weight += entryWeight;
+        evictToFit();
+    }
+
+    public synchronized void invalidate(K key) {
+        remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    private void evictToFit() {
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    private record Entry<V>(V value, long weight, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.gbai.storage_ms.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gbai.storage_ms.limit.AdaptiveConcurrencyLimiter;
+import com.gbai.storage_ms.limit.AdmissionFilter;
+import com.gbai.storage_ms.limit.LoadShedException;
+import com.gbai.storage_ms.limit.RepositoryLimitPostProcessor;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoSocketReadTimeoutException;
+import com.mongodb.MongoTimeoutException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Adaptive concurrency limits for MinIO and Mongo, and the admission filter in front of
+ * the endpoints. The limiters see timeouts and rejected work as overload, besides slow
+ * calls; our own load shedding is not, or one shed call would shrink the limit further.
+ */
+@Configuration
+public class ConcurrencyLimitConfig {
+    @Value("${storage.limits.backoff:0.9}")
+    private double backoff;
+    @Value("${storage.limits.bulk-share:0.5}")
+    private double bulkShare;
+    @Value("${storage.limits.bulk-max-wait:5s}")
+    private Duration bulkMaxWait;
+    @Value("${storage.limits.retry-after:1s}")
+    private Duration retryAfter;
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.limits.enabled", havingValue = "true", matchIfMissing = true)
+    public AdaptiveConcurrencyLimiter minioLimiter(MeterRegistry meterRegistry,
+                                                   @Value("${storage.limits.minio.initial-limit:32}") int initialLimit,
+                                                   @Value("${storage.limits.minio.min-limit:4}") int minLimit,
+                                                   @Value("${storage.limits.minio.max-limit:256}") int maxLimit,
+                                                   @Value("${storage.limits.minio.slow-call:2s}") Duration slowCall) {
+        return new AdaptiveConcurrencyLimiter("minio", meterRegistry, initialLimit, minLimit, maxLimit, slowCall,
+                backoff, bulkShare, bulkMaxWait, retryAfter,
+                e -> e instanceof TimeoutException || e instanceof SocketTimeoutException || isRejection(e));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.limits.enabled", havingValue = "true", matchIfMissing = true)
+    public AdaptiveConcurrencyLimiter mongoLimiter(MeterRegistry meterRegistry,
+                                                   @Value("${storage.limits.mongo.initial-limit:64}") int initialLimit,
+                                                   @Value("${storage.limits.mongo.min-limit:8}") int minLimit,
+                                                   @Value("${storage.limits.mongo.max-limit:512}") int maxLimit,
+                                                   @Value("${storage.limits.mongo.slow-call:500ms}") Duration slowCall) {
+        return new AdaptiveConcurrencyLimiter("mongo", meterRegistry, initialLimit, minLimit, maxLimit, slowCall,
+                backoff, bulkShare, bulkMaxWait, retryAfter,
+                e -> e instanceof MongoTimeoutException || e instanceof MongoSocketReadTimeoutException
+                        || e instanceof MongoExecutionTimeoutException || e instanceof QueryTimeoutException
+                        || e instanceof TimeoutException || isRejection(e));
+    }
+
+    // Static, so registering it does not instantiate this configuration early
+    @Bean
+    public static RepositoryLimitPostProcessor repositoryLimitPostProcessor(
+            @Qualifier("mongoLimiter") ObjectProvider<AdaptiveConcurrencyLimiter> mongoLimiter) {
+        return new RepositoryLimitPostProcessor(mongoLimiter);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.admission.enabled", havingValue = "true", matchIfMissing = true)
+    public AdmissionFilter admissionFilter(ObjectProvider<AdaptiveConcurrencyLimiter> limiters,
+                                           ObjectMapper objectMapper,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${storage.admission.interactive.max-concurrent:512}") int interactiveMaxConcurrent,
+                                           @Value("${storage.admission.bulk.max-concurrent:8}") int bulkMaxConcurrent,
+                                           @Value("${storage.admission.bulk-shed-utilization:0.8}") double bulkShedUtilization) {
+        return new AdmissionFilter(limiters.orderedStream().toList(), objectMapper, meterRegistry,
+                interactiveMaxConcurrent, bulkMaxConcurrent, bulkShedUtilization, retryAfter);
+    }
+
+    private static boolean isRejection(Throwable e) {
+        return e instanceof RejectedExecutionException && !(e instanceof LoadShedException);
+    }
+}
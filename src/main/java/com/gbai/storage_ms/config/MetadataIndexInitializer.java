@@ -0,0 +1,35 @@
+package com.gbai.storage_ms.config;
+
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ensures the video metadata indexes at startup. Spring Data's automatic index creation
+ * stays off, so deployments that manage indexes themselves can disable this too.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.metadata.ensure-indexes", havingValue = "true", matchIfMissing = true)
+public class MetadataIndexInitializer {
+    private static final Duration TIMEOUT = Duration.ofMinutes(5);
+
+    private final VideoMetadataRepository metadataRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        metadataRepository.ensureIndexes()
+                .timeout(TIMEOUT)
+                .subscribe(
+                        unused -> { },
+                        e -> log.warn("Could not create video metadata indexes: {}", e.getMessage()),
+                        () -> log.info("Video metadata indexes are in place"));
+    }
+}
@@ -1,9 +1,33 @@
 package com.gbai.storage_ms.config;
 
+import com.gbai.storage_ms.limit.AdaptiveConcurrencyLimiter;
+import com.gbai.storage_ms.storage.MinioEndpointRouter;
+import com.gbai.storage_ms.storage.MinioIoExecutor;
+import com.gbai.storage_ms.storage.MultipartMinioClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpMetricsEventListener;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.observability.micrometer.Micrometer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
 
 @Configuration
 public class MinioConfig {
@@ -13,12 +37,121 @@ public class MinioConfig {
     private String accessKey;
     @Value("${minio.secret-key}")
     private String secretKey;
+    @Value("${minio.region:us-east-1}")
+    private String region;
+
+    @Value("${minio.io.mode:bounded-elastic}")
+    private String ioMode;
+    @Value("${minio.io.thread-cap:64}")
+    private int ioThreadCap;
+    @Value("${minio.io.queue-cap:10000}")
+    private int ioQueueCap;
+    @Value("${minio.io.timeout:10s}")
+    private Duration ioTimeout;
+
+    @Value("${minio.http.max-idle-connections:64}")
+    private int maxIdleConnections;
+    @Value("${minio.http.keep-alive:5m}")
+    private Duration keepAlive;
+    @Value("${minio.http.max-requests:256}")
+    private int maxRequests;
+    @Value("${minio.http.max-requests-per-host:256}")
+    private int maxRequestsPerHost;
+    @Value("${minio.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+    @Value("${minio.http.read-timeout:5m}")
+    private Duration readTimeout;
+    @Value("${minio.http.write-timeout:5m}")
+    private Duration writeTimeout;
+    @Value("${minio.http.http2:false}")
+    private boolean http2;
+
+    /**
+     * One HTTP client, and so one connection pool, for all MinIO clients. The SDK's
+     * default client keeps 5 idle connections and, for the async client, runs 5 requests
+     * per host at a time, so both are configurable here. HTTP/2 is negotiated over TLS
+     * only. Requests are timed as {@code minio.http.requests} and the pool is exposed as
+     * {@code minio.http.pool.*}.
+     */
+    @Bean
+    public OkHttpClient minioHttpClient(MeterRegistry meterRegistry, MinioEndpointRouter endpointRouter) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        OkHttpClient.Builder builder = HttpUtils.newDefaultHttpClient(connectTimeout.toMillis(), writeTimeout.toMillis(), readTimeout.toMillis())
+                .newBuilder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .protocols(http2 ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1))
+                .eventListener(OkHttpMetricsEventListener.builder(meterRegistry, "minio.http.requests").build());
+        if (endpointRouter.isEnabled()) {
+            builder.addInterceptor(endpointRouter);
+        }
+        OkHttpClient client = builder.build();
+        new OkHttpConnectionPoolMetrics(client.connectionPool(), "minio.http.pool", Tags.empty()).bindTo(meterRegistry);
+        return client;
+    }
 
     @Bean
-    public MinioClient minioClient() {
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(minioUrl)
                 .credentials(accessKey, secretKey)
+                .region(region)
+                .httpClient(minioHttpClient)
+                .build();
+    }
+
+    @Bean
+    public MinioAsyncClient minioAsyncClient(OkHttpClient minioHttpClient) {
+        return MinioAsyncClient.builder()
+                .endpoint(minioUrl)
+                .credentials(accessKey, secretKey)
+                .region(region)
+                .httpClient(minioHttpClient)
                 .build();
     }
-} 
\ No newline at end of file
+
+    @Bean
+    public MultipartMinioClient multipartMinioClient(MinioAsyncClient minioAsyncClient) {
+        return new MultipartMinioClient(minioAsyncClient);
+    }
+
+    /**
+     * Task counts, queueing and run times of the scheduler are published as
+     * {@code minio.io.scheduler.*}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler minioIoScheduler(MeterRegistry meterRegistry) {
+        Scheduler scheduler;
+        switch (ioMode) {
+            case "bounded-elastic":
+                scheduler = Schedulers.newBoundedElastic(ioThreadCap, ioQueueCap, "minio-io");
+                break;
+            case "virtual-threads":
+                scheduler = Schedulers.newBoundedElastic(ioThreadCap, ioQueueCap, virtualThreadFactory("minio-io-vt-"), 60);
+                break;
+            default:
+                throw new IllegalStateException("Unknown minio.io.mode: " + ioMode);
+        }
+        return Micrometer.timedScheduler(scheduler, meterRegistry, "minio.io.scheduler", Tags.empty());
+    }
+
+    @Bean
+    public MinioIoExecutor minioIoExecutor(Scheduler minioIoScheduler, MeterRegistry meterRegistry,
+                                           @Qualifier("minioLimiter") Optional<AdaptiveConcurrencyLimiter> minioLimiter) {
+        return new MinioIoExecutor(minioIoScheduler, ioTimeout, meterRegistry, minioLimiter.orElse(null));
+    }
+
+    // Looked up reflectively so the service still compiles and runs in bounded-elastic mode on Java 17.
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("minio.io.mode=virtual-threads requires Java 21", e);
+        }
+    }
+}
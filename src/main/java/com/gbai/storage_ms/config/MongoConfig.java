@@ -0,0 +1,45 @@
+package com.gbai.storage_ms.config;
+
+import com.gbai.storage_ms.metrics.RepositoryMetricsPostProcessor;
+import com.mongodb.WriteConcern;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+@Configuration
+public class MongoConfig {
+    @Value("${storage.metadata.write-concern:ACKNOWLEDGED}")
+    private String writeConcern;
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer writeConcernCustomizer() {
+        WriteConcern concern = WriteConcern.valueOf(writeConcern);
+        if (concern == null) {
+            throw new IllegalStateException("Unknown storage.metadata.write-concern: " + writeConcern);
+        }
+        return settings -> settings.writeConcern(concern);
+    }
+
+    // Static, so registering it does not instantiate this configuration early
+    @Bean
+    public static RepositoryMetricsPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RepositoryMetricsPostProcessor(meterRegistry);
+    }
+
+    /**
+     * Makes metadata changes and their outbox events commit atomically. Needs a replica
+     * set, so it is opt-in.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "storage.outbox.transactions", havingValue = "true")
+    public TransactionalOperator metadataTransactionalOperator(ReactiveMongoDatabaseFactory databaseFactory) {
+        return TransactionalOperator.create(new ReactiveMongoTransactionManager(databaseFactory));
+    }
+}
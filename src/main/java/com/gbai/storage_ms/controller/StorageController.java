@@ -1,24 +1,49 @@
 package com.gbai.storage_ms.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.gbai.storage_ms.model.ApiResponse;
+import com.gbai.storage_ms.model.BatchUploadItem;
+import com.gbai.storage_ms.model.BatchUploadRequest;
+import com.gbai.storage_ms.model.DeletionSummary;
+import com.gbai.storage_ms.model.MultipartUploadResponse;
 import com.gbai.storage_ms.model.PresignedUrlResponse;
+import com.gbai.storage_ms.model.StorageStats;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.UploadVerificationReport;
+import com.gbai.storage_ms.model.VerifyUploadsRequest;
+import com.gbai.storage_ms.model.VideoPage;
 import com.gbai.storage_ms.service.StorageService;
+import com.gbai.storage_ms.service.StorageStatistics;
+import com.gbai.storage_ms.service.UploadTracker;
+import com.gbai.storage_ms.service.VideoStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import com.gbai.storage_ms.model.VideoMetadata;
 
+import java.time.Duration;
+import java.util.List;
+
 @RestController
 @RequestMapping("/storage")
 @RequiredArgsConstructor
 @Tag(name = "Storage", description = "Endpoints for video storage and retrieval")
 public class StorageController {
     private final StorageService storageService;
+    private final UploadTracker uploadTracker;
+    private final StorageStatistics storageStatistics;
+    private final VideoStreamer videoStreamer;
 
     @PostMapping("/presigned-upload")
     @Operation(summary = "Get presigned upload URL for a competition video")
@@ -26,9 +51,56 @@ public class StorageController {
                                                                          @RequestParam String uploaderId,
                                                                          @RequestParam String originalFilename,
                                                                          @RequestParam String contentType,
-                                                                         @RequestParam long fileSize) {
-        return storageService.generatePresignedUploadUrl(competitionId, uploaderId, originalFilename, contentType, fileSize)
-                .map(url -> new ApiResponse<>(200, "Presigned upload URL generated", url));
+                                                                         @RequestParam long fileSize,
+                                                                         @Parameter(description = "Hex MD5 of the file; with deduplication enabled a file the uploader already stored is not uploaded again")
+                                                                         @RequestParam(required = false) String contentHash) {
+        return storageService.generatePresignedUploadUrl(competitionId, uploaderId, originalFilename, contentType, fileSize, contentHash)
+                .map(url -> new ApiResponse<>(200, url.isDeduplicated() ? "File already stored, no upload needed" : "Presigned upload URL generated", url));
+    }
+
+    @PostMapping("/presigned-upload/batch")
+    @Operation(summary = "Get presigned upload URLs for several competition videos at once")
+    public Mono<ApiResponse<List<BatchUploadItem>>> getPresignedUploadUrls(@RequestBody BatchUploadRequest request) {
+        return storageService.generatePresignedUploadUrls(request.getCompetitionId(), request.getUploaderId(), request.getFiles())
+                .map(items -> {
+                    long issued = items.stream().filter(item -> item.getError() == null).count();
+                    return new ApiResponse<>(200, issued + " of " + items.size() + " presigned upload URLs generated", items);
+                });
+    }
+
+    @PostMapping("/multipart/initiate")
+    @Operation(summary = "Start a multipart upload for a large competition video",
+            description = "Returns a presigned PUT URL per part; upload the parts in any order, then call complete")
+    public Mono<ApiResponse<MultipartUploadResponse>> initiateMultipartUpload(@RequestParam String competitionId,
+                                                                              @RequestParam String uploaderId,
+                                                                              @RequestParam String originalFilename,
+                                                                              @RequestParam String contentType,
+                                                                              @RequestParam long fileSize) {
+        return storageService.initiateMultipartUpload(competitionId, uploaderId, originalFilename, contentType, fileSize)
+                .map(upload -> new ApiResponse<>(200, "Multipart upload initiated", upload));
+    }
+
+    @GetMapping("/multipart/{videoId}")
+    @Operation(summary = "Get the uploaded parts of a multipart upload and fresh URLs for the missing ones")
+    public Mono<ResponseEntity<ApiResponse<MultipartUploadResponse>>> getMultipartUpload(@PathVariable String videoId) {
+        return storageService.getMultipartUpload(videoId)
+                .map(upload -> ResponseEntity.ok(new ApiResponse<>(200, "Multipart upload status", upload)))
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
+    }
+
+    @PostMapping("/multipart/{videoId}/complete")
+    @Operation(summary = "Complete a multipart upload once all parts are uploaded")
+    public Mono<ResponseEntity<ApiResponse<VideoMetadata>>> completeMultipartUpload(@PathVariable String videoId) {
+        return storageService.completeMultipartUpload(videoId)
+                .map(metadata -> ResponseEntity.ok(new ApiResponse<>(200, "Multipart upload completed", metadata)))
+                .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
+    }
+
+    @DeleteMapping("/multipart/{videoId}")
+    @Operation(summary = "Abort a multipart upload and discard its parts")
+    public Mono<ApiResponse<Void>> abortMultipartUpload(@PathVariable String videoId) {
+        return storageService.abortMultipartUpload(videoId)
+                .thenReturn(new ApiResponse<>(200, "Multipart upload aborted", null));
     }
 
     @GetMapping("/presigned-download/{videoId}")
@@ -38,6 +110,16 @@ public class StorageController {
                 .map(url -> new ApiResponse<>(200, "Presigned download URL generated", url));
     }
 
+    @GetMapping("/stream/{videoId}")
+    @Operation(summary = "Download a video through the service",
+            description = "For clients that cannot reach MinIO; supports single Range requests and If-None-Match. "
+                    + "Enabled with storage.stream.enabled")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> streamVideo(@PathVariable String videoId,
+                                                              ServerHttpRequest request,
+                                                              ServerHttpResponse response) {
+        return videoStreamer.stream(videoId, request, response);
+    }
+
     @GetMapping("/competition/{competitionId}/videos")
     @Operation(summary = "List presigned download URLs for all videos in a competition")
     public Flux<ApiResponse<PresignedUrlResponse>> listVideosForCompetition(@PathVariable String competitionId) {
@@ -45,12 +127,67 @@ public class StorageController {
                 .map(url -> new ApiResponse<>(200, "Presigned download URL", url));
     }
 
-    @Operation(summary = "Verify video upload completion", description = "Check if a video was successfully uploaded to MinIO")
+    @GetMapping("/competition/{competitionId}/videos/page")
+    @Operation(summary = "List presigned download URLs for a competition one page at a time",
+            description = "Pass the returned nextCursor to get the following page; it is null on the last page")
+    public Mono<ApiResponse<VideoPage>> listVideosForCompetitionPage(@PathVariable String competitionId,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(defaultValue = "100") int limit) {
+        return storageService.listPresignedDownloadUrlsPage(competitionId, cursor, limit)
+                .map(page -> new ApiResponse<>(200, "Presigned download URLs", page));
+    }
+
+    @GetMapping(value = "/competition/{competitionId}/videos/stream",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @Operation(summary = "Stream presigned download URLs for all videos in a competition as NDJSON or SSE")
+    public Flux<PresignedUrlResponse> streamVideosForCompetition(@PathVariable String competitionId) {
+        return storageService.listPresignedDownloadUrlsForCompetition(competitionId);
+    }
+
+    @Operation(summary = "Verify video upload completion", description = "Check if a video was successfully uploaded to MinIO. "
+            + "With waitSeconds the request is held until the upload is confirmed or the wait runs out")
     @GetMapping("/verify/{videoId}")
-    public Mono<ApiResponse<Boolean>> verifyVideoUpload(@PathVariable String videoId) {
-        return storageService.verifyVideoUpload(videoId)
-                .map(verified -> new ApiResponse<>(200, "Video upload verification completed", verified))
-                .onErrorReturn(new ApiResponse<>(500, "Error verifying video upload", false));
+    public Mono<ApiResponse<Boolean>> verifyVideoUpload(@PathVariable String videoId,
+                                                        @RequestParam(defaultValue = "0") int waitSeconds) {
+        Mono<Boolean> verified = waitSeconds > 0
+                ? storageService.awaitVideoUpload(videoId, Duration.ofSeconds(waitSeconds))
+                : storageService.verifyVideoUpload(videoId);
+        return verified
+                .map(result -> new ApiResponse<>(200, "Video upload verification completed", result));
+    }
+
+    @PostMapping("/verify")
+    @Operation(summary = "Verify the uploads of several videos at once",
+            description = "Lists each involved competition bucket once instead of checking every object separately")
+    public Mono<ApiResponse<UploadVerificationReport>> verifyVideoUploads(@RequestBody VerifyUploadsRequest request) {
+        return storageService.verifyUploads(request.getVideoIds())
+                .map(report -> new ApiResponse<>(200, "Video upload verification completed", report));
+    }
+
+    @GetMapping("/competition/{competitionId}/verify")
+    @Operation(summary = "Verify the uploads of all videos in a competition")
+    public Mono<ApiResponse<UploadVerificationReport>> verifyCompetitionUploads(@PathVariable String competitionId) {
+        return storageService.verifyCompetitionUploads(competitionId)
+                .map(report -> new ApiResponse<>(200, "Competition upload verification completed", report));
+    }
+
+    @GetMapping(value = "/verify/{videoId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream the upload status of a video as SSE until it completes or fails")
+    public Flux<UploadStatus> watchVideoUpload(@PathVariable String videoId,
+                                               @RequestParam(defaultValue = "60") int waitSeconds) {
+        return storageService.watchUploadStatus(videoId, Duration.ofSeconds(waitSeconds));
+    }
+
+    @PostMapping("/notifications/minio")
+    @Operation(summary = "Receive MinIO bucket notifications", description = "Webhook target for s3:ObjectCreated:* events; "
+            + "authenticated with storage.notifications.webhook-token")
+    public Mono<ResponseEntity<ApiResponse<Long>>> receiveMinioNotification(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                                                            @RequestBody JsonNode notification) {
+        if (!uploadTracker.acceptsWebhook(authorization)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        return uploadTracker.handleNotification(notification)
+                .map(updated -> ResponseEntity.ok(new ApiResponse<>(200, "Notification processed", updated)));
     }
 
     @DeleteMapping("/{videoId}")
@@ -73,14 +210,46 @@ public class StorageController {
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
+    @GetMapping("/stats/competition/{competitionId}")
+    @Operation(summary = "Get the number and total size of a competition's uploaded videos")
+    public Mono<ApiResponse<StorageStats>> getCompetitionStats(@PathVariable String competitionId) {
+        return storageStatistics.competition(competitionId)
+                .map(stats -> new ApiResponse<>(200, "Competition storage statistics", stats));
+    }
+
+    @GetMapping("/stats/uploader/{uploaderId}")
+    @Operation(summary = "Get the number and total size of an uploader's uploaded videos")
+    public Mono<ApiResponse<StorageStats>> getUploaderStats(@PathVariable String uploaderId) {
+        return storageStatistics.uploader(uploaderId)
+                .map(stats -> new ApiResponse<>(200, "Uploader storage statistics", stats));
+    }
+
+    @PostMapping("/stats/rebuild")
+    @Operation(summary = "Recompute all storage statistics from the video metadata")
+    public Mono<ApiResponse<Void>> rebuildStats() {
+        return storageStatistics.rebuild()
+                .thenReturn(new ApiResponse<>(200, "Storage statistics rebuilt", null));
+    }
+
     @Operation(summary = "Delete user video data (cascade deletion)")
     @DeleteMapping("/user/{userId}")
-    public Mono<ResponseEntity<ApiResponse<Void>>> deleteUserVideos(@Parameter(description = "User ID") @PathVariable String userId) {
+    public Mono<ResponseEntity<ApiResponse<DeletionSummary>>> deleteUserVideos(@Parameter(description = "User ID") @PathVariable String userId) {
         return storageService.deleteUserVideos(userId)
-                .thenReturn(ResponseEntity.ok(ApiResponse.<Void>builder()
+                .map(summary -> ResponseEntity.ok(ApiResponse.<DeletionSummary>builder()
                     .status(200)
                     .message("User video data deleted successfully")
-                    .data(null)
+                    .data(summary)
+                    .build()));
+    }
+
+    @Operation(summary = "Delete all videos of a competition (cascade deletion)")
+    @DeleteMapping("/competition/{competitionId}")
+    public Mono<ResponseEntity<ApiResponse<DeletionSummary>>> deleteCompetitionVideos(@Parameter(description = "Competition ID") @PathVariable String competitionId) {
+        return storageService.deleteCompetitionVideos(competitionId)
+                .map(summary -> ResponseEntity.ok(ApiResponse.<DeletionSummary>builder()
+                    .status(200)
+                    .message("Competition video data deleted successfully")
+                    .data(summary)
                     .build()));
     }
 } 
\ No newline at end of file
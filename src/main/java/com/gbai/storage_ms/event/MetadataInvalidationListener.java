@@ -0,0 +1,38 @@
+package com.gbai.storage_ms.event;
+
+import com.gbai.storage_ms.service.MetadataCache;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Applies metadata cache invalidations broadcast by the other replicas. Every instance
+ * assigns itself all partitions of the topic instead of joining a consumer group, so
+ * each one sees every invalidation and restarts leave no groups behind on the broker.
+ * Consumption starts at the end of the topic: the cache starts empty, so past
+ * invalidations mean nothing, and committed offsets are never read.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.metadata-cache.invalidation.kafka.enabled", havingValue = "true")
+public class MetadataInvalidationListener implements ConsumerSeekAware {
+    private final MetadataCache metadataCache;
+
+    @KafkaListener(topicPartitions = @org.springframework.kafka.annotation.TopicPartition(
+                    topic = "${storage.metadata-cache.invalidation.kafka.topic:video-metadata-invalidations}",
+                    partitions = "${storage.metadata-cache.invalidation.kafka.partitions:0}"),
+            groupId = "${spring.kafka.consumer.group-id:storage-ms}-metadata-cache")
+    public void onInvalidation(String videoId) {
+        metadataCache.invalidateLocally(videoId);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+}
@@ -0,0 +1,34 @@
+package com.gbai.storage_ms.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gbai.storage_ms.service.UploadTracker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Consumes MinIO bucket notifications published to Kafka, the queue alternative to the
+ * webhook endpoint. A record is only acknowledged once its uploads are recorded, so a
+ * failure is retried by the container.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.notifications.kafka.enabled", havingValue = "true")
+public class MinioNotificationListener {
+    private static final Duration HANDLE_TIMEOUT = Duration.ofSeconds(30);
+
+    private final UploadTracker uploadTracker;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(topics = "${storage.notifications.kafka.topic:minio-events}", groupId = "${spring.kafka.consumer.group-id:storage-ms}-minio-events")
+    public void onNotification(String payload) throws JsonProcessingException {
+        Long updated = uploadTracker.handleNotification(objectMapper.readTree(payload)).block(HANDLE_TIMEOUT);
+        log.debug("MinIO notification updated {} videos", updated);
+    }
+}
@@ -0,0 +1,34 @@
+package com.gbai.storage_ms.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A {@link VideoEvent} waiting in the outbox. It is written together with the metadata
+ * change it describes and relayed to Kafka later; {@code sentAt} stays null until then.
+ * An event that can never be sent gets {@code failedAt} and the reason instead.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "video_outbox")
+public class OutboxEvent {
+    @Id
+    private String id; // also sent as the eventId header so consumers can drop redeliveries
+    private String key;
+    private VideoEvent event;
+    private Instant createdAt;
+    private Instant sentAt;
+    private Instant failedAt;
+    private String failure;
+
+    public static OutboxEvent of(VideoEvent event) {
+        return new OutboxEvent(UUID.randomUUID().toString(), event.getVideoId(), event, Instant.now(), null, null, null);
+    }
+}
@@ -0,0 +1,176 @@
+package com.gbai.storage_ms.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gbai.storage_ms.repository.OutboxEventRepository;
+import com.gbai.storage_ms.repository.ReconcileCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the outbox to Kafka in the background. Each pass sends the oldest pending
+ * events as one batch, lets the producer group them by its linger and batch settings,
+ * and marks only the acknowledged events as sent; the rest are retried on a later
+ * pass. Delivery is at least once, consumers deduplicate on the {@code eventId} header.
+ * Events of one key are sent in order and a failed one holds back those after it, so a
+ * video's events are never published out of order. Events that cannot be serialized are
+ * parked with {@code failedAt} set and left for an operator.
+ *
+ * <p>A lease, kept like the {@link com.gbai.storage_ms.service.OrphanReconciler}'s in
+ * the checkpoint collection, lets one instance relay at a time, so replicas do not all
+ * publish the same events. The holder renews it before every batch and keeps it across
+ * passes; another instance takes over once it expires.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+    static final String LEASE_ID = "outbox-relay";
+
+    private final OutboxEventRepository outboxRepository;
+    private final ReconcileCheckpointRepository leaseRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String topic;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final Duration lease;
+    private final String owner = UUID.randomUUID().toString();
+    private final Counter sent;
+    private final Counter failed;
+    private Disposable loop;
+
+    public OutboxRelay(OutboxEventRepository outboxRepository,
+                       ReconcileCheckpointRepository leaseRepository,
+                       KafkaTemplate<String, String> kafkaTemplate,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${storage.outbox.topic:video-events}") String topic,
+                       @Value("${storage.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${storage.outbox.relay.poll-interval:200ms}") Duration pollInterval,
+                       @Value("${storage.outbox.retention:7d}") Duration retention,
+                       @Value("${storage.outbox.relay.lease:30s}") Duration lease) {
+        this.outboxRepository = outboxRepository;
+        this.leaseRepository = leaseRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+        this.lease = lease;
+        this.sent = Counter.builder("outbox.relay.events").tag("result", "sent").register(meterRegistry);
+        this.failed = Counter.builder("outbox.relay.events").tag("result", "failed").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        loop = outboxRepository.ensureIndexes(retention)
+                .onErrorResume(e -> {
+                    log.warn("Could not create outbox indexes: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .thenMany(Flux.interval(pollInterval).onBackpressureDrop())
+                .concatMap(tick -> drain()
+                        .onErrorResume(e -> {
+                            log.warn("Outbox relay pass failed: {}", e.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (loop != null) {
+            loop.dispose();
+        }
+        // Lets another instance take over without waiting for the lease to expire
+        leaseRepository.release(LEASE_ID, owner)
+                .onErrorResume(e -> Mono.empty())
+                .block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Relays batches until the outbox has no more pending events or the lease is held
+     * elsewhere, and returns how many events were marked sent.
+     */
+    Mono<Long> drain() {
+        return relayBatch()
+                .expand(batch -> batch.full() && batch.sent() > 0 ? relayBatch() : Mono.empty())
+                .map(Batch::sent)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Batch> relayBatch() {
+        Instant now = Instant.now();
+        return leaseRepository.acquire(LEASE_ID, owner, now, now.plus(lease))
+                .flatMap(held -> outboxRepository.findPending(batchSize).collectList())
+                .flatMap(events -> {
+                    if (events.isEmpty()) {
+                        return Mono.just(new Batch(false, 0));
+                    }
+                    // Keys go to the producer side by side, but a key's events one after
+                    // the other and none after one that failed, so they reach Kafka in order
+                    Collection<List<OutboxEvent>> byKey = events.stream()
+                            .collect(Collectors.groupingBy(OutboxEvent::getKey, LinkedHashMap::new, Collectors.toList()))
+                            .values();
+                    return Flux.fromIterable(byKey)
+                            .flatMap(keyEvents -> Flux.fromIterable(keyEvents)
+                                    .concatMap(this::send)
+                                    .onErrorResume(e -> Mono.empty()), byKey.size())
+                            .collectList()
+                            .flatMap(acked -> acked.isEmpty()
+                                    ? Mono.just(0L)
+                                    : outboxRepository.markSent(acked, Instant.now()))
+                            .map(marked -> new Batch(events.size() == batchSize, marked));
+                });
+    }
+
+    /**
+     * Emits the event's id once Kafka acknowledged it, or errors. An event that cannot be
+     * serialized never will be, so it is parked instead of blocking the outbox.
+     */
+    private Mono<String> send(OutboxEvent event) {
+        ProducerRecord<String, String> record;
+        try {
+            record = new ProducerRecord<>(topic, event.getKey(), objectMapper.writeValueAsString(event.getEvent()));
+        } catch (JsonProcessingException e) {
+            failed.increment();
+            log.error("Cannot serialize outbox event {}, parking it", event.getId(), e);
+            return outboxRepository.markFailed(event.getId(), e.getOriginalMessage(), Instant.now()).then(Mono.empty());
+        }
+        record.headers().add("eventId", event.getId().getBytes(StandardCharsets.UTF_8));
+        return Mono.fromFuture(() -> kafkaTemplate.send(record))
+                .doOnSuccess(result -> sent.increment())
+                .thenReturn(event.getId())
+                .doOnError(e -> {
+                    failed.increment();
+                    log.warn("Publishing outbox event {} failed, will retry: {}", event.getId(), e.getMessage());
+                });
+    }
+
+    private record Batch(boolean full, long sent) {
+    }
+}
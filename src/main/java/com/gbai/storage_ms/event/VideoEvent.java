@@ -1,5 +1,6 @@
 package com.gbai.storage_ms.event;
 
+import com.gbai.storage_ms.model.VideoEventRef;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,10 +9,18 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class VideoEvent {
+    public static final String VIDEO_UPLOADED = "videoUploaded";
+    public static final String VIDEO_DELETED = "videoDeleted";
+
     private String eventType; // videoUploaded, videoDeleted
     private String videoId;
     private String competitionId;
     private String uploaderId;
     private String filename;
     private long timestamp;
-} 
\ No newline at end of file
+
+    public static VideoEvent of(String eventType, VideoEventRef metadata) {
+        return new VideoEvent(eventType, metadata.getId(), metadata.getCompetitionId(), metadata.getUploaderId(),
+                metadata.getOriginalFilename(), System.currentTimeMillis());
+    }
+}
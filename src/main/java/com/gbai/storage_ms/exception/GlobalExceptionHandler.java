@@ -1,16 +1,85 @@
 package com.gbai.storage_ms.exception;
 
+import com.gbai.storage_ms.limit.LoadShedException;
+import com.gbai.storage_ms.metrics.ErrorCause;
 import com.gbai.storage_ms.model.ApiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.minio.errors.ErrorResponseException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Maps failures to the status their cause calls for instead of a blanket 500, and
+ * counts them in {@code storage.errors} tagged with the cause and the status sent.
+ */
+@Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionHandler(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<Void>> handleException(Exception ex) {
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ApiResponse<>(500, "Unexpected error: " + ex.getMessage(), null));
+        HttpStatusCode status = statusFor(ex);
+        String cause = ErrorCause.of(ex);
+        Counter.builder("storage.errors")
+                .tag("exception", cause)
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry)
+                .increment();
+        if (status.is5xxServerError()) {
+            log.error("Request failed with {}: {}", status.value(), cause, ex);
+        }
+        String message = status.value() == HttpStatus.INTERNAL_SERVER_ERROR.value()
+                ? "Unexpected error: " + ex.getMessage()
+                : ex instanceof ResponseStatusException e && e.getReason() != null ? e.getReason() : ex.getMessage();
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (ex instanceof RejectedExecutionException) {
+            // Saturation passes quickly, so tell clients when to come back
+            Duration retryAfter = ex instanceof LoadShedException shed ? shed.getRetryAfter() : Duration.ofSeconds(1);
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        }
+        return response.body(new ApiResponse<>(status.value(), message, null));
+    }
+
+    private static HttpStatusCode statusFor(Exception ex) {
+        if (ex instanceof LoadShedException e) {
+            return e.getStatus();
+        }
+        if (ex instanceof ResponseStatusException e) {
+            return e.getStatusCode();
+        }
+        if (ex instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        if (ex instanceof RejectedExecutionException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        if (ex instanceof TimeoutException) {
+            return HttpStatus.GATEWAY_TIMEOUT;
+        }
+        if (ex instanceof ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            return "NoSuchKey".equals(code) || "NoSuchBucket".equals(code) || "NoSuchUpload".equals(code)
+                    ? HttpStatus.NOT_FOUND
+                    : HttpStatus.BAD_GATEWAY;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
     }
-} 
\ No newline at end of file
+}
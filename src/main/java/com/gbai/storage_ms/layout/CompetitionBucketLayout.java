@@ -0,0 +1,42 @@
+package com.gbai.storage_ms.layout;
+
+/**
+ * The original layout: one {@code competition-<competitionId>} bucket per competition
+ * with objects named {@code <fileId>-<originalFilename>}.
+ */
+public class CompetitionBucketLayout implements ObjectLayout {
+    public static final String NAME = "competition-bucket";
+    public static final String BUCKET_PREFIX = "competition-";
+    // File ids are UUIDs
+    private static final int FILE_ID_LENGTH = 36;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String bucket(String competitionId) {
+        return BUCKET_PREFIX + competitionId;
+    }
+
+    @Override
+    public String objectKey(String competitionId, String fileId, String originalFilename) {
+        return fileId + "-" + originalFilename;
+    }
+
+    @Override
+    public String fileId(String bucket, String objectKey) {
+        if (!bucket.startsWith(BUCKET_PREFIX) || objectKey.length() <= FILE_ID_LENGTH || objectKey.charAt(FILE_ID_LENGTH) != '-') {
+            return null;
+        }
+        return objectKey.substring(0, FILE_ID_LENGTH);
+    }
+
+    /**
+     * The competition whose bucket this is, or null for any other bucket.
+     */
+    public String competitionId(String bucket) {
+        return bucket.startsWith(BUCKET_PREFIX) ? bucket.substring(BUCKET_PREFIX.length()) : null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.gbai.storage_ms.layout;
+
+/**
+ * Where a video's object lives: the bucket and the object key it is uploaded under.
+ * The layout is recorded on each video's metadata, so videos stored under different
+ * layouts can coexist.
+ */
+public interface ObjectLayout {
+    /**
+     * Name recorded in {@code VideoMetadata.objectLayout}.
+     */
+    String name();
+
+    String bucket(String competitionId);
+
+    String objectKey(String competitionId, String fileId, String originalFilename);
+
+    /**
+     * The file id, and so video id, of an object this layout could have stored under
+     * that bucket and key, or null when the object is not one of this layout's.
+     */
+    String fileId(String bucket, String objectKey);
+}
@@ -0,0 +1,69 @@
+package com.gbai.storage_ms.layout;
+
+import com.gbai.storage_ms.model.VideoObjectRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The layout new uploads are stored under, selected by {@code storage.layout.mode}, and
+ * the lookups that work across layouts. Existing videos keep the bucket recorded on their
+ * metadata, so switching the mode only moves new uploads; documents written before the
+ * bucket was recorded are in their competition's bucket.
+ */
+@Component
+public class ObjectLayouts {
+    private final CompetitionBucketLayout competitionBuckets = new CompetitionBucketLayout();
+    private final SharedBucketLayout sharedBucket;
+    private final String sharedBucketName;
+    private final ObjectLayout current;
+
+    public ObjectLayouts(@Value("${storage.layout.mode:competition-bucket}") String mode,
+                         @Value("${storage.layout.shared-bucket:videos}") String sharedBucketName) {
+        this.sharedBucketName = sharedBucketName;
+        this.sharedBucket = new SharedBucketLayout(sharedBucketName);
+        this.current = switch (mode) {
+            case CompetitionBucketLayout.NAME -> competitionBuckets;
+            case SharedBucketLayout.NAME -> sharedBucket;
+            default -> throw new IllegalStateException("Unknown storage.layout.mode: " + mode);
+        };
+    }
+
+    /**
+     * The layout for new uploads.
+     */
+    public ObjectLayout current() {
+        return current;
+    }
+
+    public String bucketOf(VideoObjectRef video) {
+        return video.getBucket() != null ? video.getBucket() : competitionBuckets.bucket(video.getCompetitionId());
+    }
+
+    /**
+     * The file id of an object stored under any layout, or null when the object is not a
+     * video's.
+     */
+    public String fileId(String bucket, String objectKey) {
+        String fileId = sharedBucket.fileId(bucket, objectKey);
+        return fileId != null ? fileId : competitionBuckets.fileId(bucket, objectKey);
+    }
+
+    /**
+     * The competition a bucket is dedicated to, or null for the shared bucket and buckets
+     * that hold no videos.
+     */
+    public String competitionOfBucket(String bucket) {
+        return bucket.equals(sharedBucketName) ? null : competitionBuckets.competitionId(bucket);
+    }
+
+    public String competitionBucket(String competitionId) {
+        return competitionBuckets.bucket(competitionId);
+    }
+
+    /**
+     * Whether the bucket holds videos under some layout.
+     */
+    public boolean holdsVideos(String bucket) {
+        return bucket.equals(sharedBucketName) || competitionBuckets.competitionId(bucket) != null;
+    }
+}
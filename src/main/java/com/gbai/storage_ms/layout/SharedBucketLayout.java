@@ -0,0 +1,55 @@
+package com.gbai.storage_ms.layout;
+
+/**
+ * All competitions in one bucket, with object keys {@code <hash>/<competitionId>/<fileId>}.
+ * The hash is four hex digits derived from the file id, so keys spread evenly over
+ * 65536 prefixes instead of clustering under one competition, and no bucket has to be
+ * created per competition. The original filename stays in the metadata only.
+ */
+public class SharedBucketLayout implements ObjectLayout {
+    public static final String NAME = "shared-bucket";
+    private static final int HASH_LENGTH = 4;
+
+    private final String bucket;
+
+    public SharedBucketLayout(String bucket) {
+        this.bucket = bucket;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public String bucket(String competitionId) {
+        return bucket;
+    }
+
+    @Override
+    public String objectKey(String competitionId, String fileId, String originalFilename) {
+        return hash(fileId) + "/" + competitionId + "/" + fileId;
+    }
+
+    @Override
+    public String fileId(String bucket, String objectKey) {
+        int last = objectKey.lastIndexOf('/');
+        if (!this.bucket.equals(bucket) || last < HASH_LENGTH + 2 || objectKey.charAt(HASH_LENGTH) != '/') {
+            return null;
+        }
+        String fileId = objectKey.substring(last + 1);
+        return !fileId.isEmpty() && objectKey.startsWith(hash(fileId)) ? fileId : null;
+    }
+
+    static String hash(String fileId) {
+        // Murmur3 finalizer, so ids that differ in a single character land far apart
+        int h = fileId.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        String hex = Integer.toHexString(h & 0xffff);
+        return "0".repeat(HASH_LENGTH - hex.length()) + hex;
+    }
+}
@@ -0,0 +1,228 @@
+package com.gbai.storage_ms.limit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Caps the calls in flight to one dependency at a limit that adapts to its latency
+ * (AIMD): every call answered within {@code slowCall} raises the limit by
+ * {@code 1/limit}, so by about one per round of calls, while the limit is actually
+ * used; a slower call or an overload error cuts it by {@code backoff}, at most once per
+ * {@code slowCall} so that one burst of slow calls counts as one signal.
+ *
+ * <p>Bulk work ({@link Priority#BULK} in the subscriber context) may only use
+ * {@code bulkShare} of the limit, which keeps the rest free for interactive calls, and
+ * waits up to {@code bulkMaxWait} for a permit. Interactive calls over the limit fail
+ * right away with a {@link LoadShedException}, so the client retries instead of queueing.
+ * A stream holds its permit only until its first signal, which is also its sample:
+ * holding it while the consumer works through the results would let a cascade's listing
+ * starve the calls the cascade makes for each element. A call cancelled after
+ * {@code slowCall} counts as a slow one; one cancelled sooner leaves the limit alone.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final Duration BULK_POLL_MIN = Duration.ofMillis(10);
+    private static final Duration BULK_POLL_MAX = Duration.ofMillis(200);
+
+    private final String dependency;
+    private final MeterRegistry meterRegistry;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long slowCallNanos;
+    private final double backoff;
+    private final double bulkShare;
+    private final Duration bulkMaxWait;
+    private final Duration retryAfter;
+    private final Predicate<Throwable> overload;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long lastDecrease;
+
+    public AdaptiveConcurrencyLimiter(String dependency, MeterRegistry meterRegistry, int initialLimit, int minLimit, int maxLimit,
+                                      Duration slowCall, double backoff, double bulkShare, Duration bulkMaxWait, Duration retryAfter,
+                                      Predicate<Throwable> overload) {
+        this(dependency, meterRegistry, initialLimit, minLimit, maxLimit, slowCall, backoff, bulkShare, bulkMaxWait, retryAfter,
+                overload, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String dependency, MeterRegistry meterRegistry, int initialLimit, int minLimit, int maxLimit,
+                               Duration slowCall, double backoff, double bulkShare, Duration bulkMaxWait, Duration retryAfter,
+                               Predicate<Throwable> overload, LongSupplier nanoClock) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalStateException("Concurrency limits of " + dependency + " must satisfy 1 <= min <= initial <= max");
+        }
+        this.dependency = dependency;
+        this.meterRegistry = meterRegistry;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.slowCallNanos = slowCall.toNanos();
+        this.backoff = backoff;
+        this.bulkShare = bulkShare;
+        this.bulkMaxWait = bulkMaxWait;
+        this.retryAfter = retryAfter;
+        this.overload = overload;
+        this.nanoClock = nanoClock;
+        this.limit = initialLimit;
+        this.lastDecrease = nanoClock.getAsLong() - slowCallNanos;
+        Gauge.builder("storage.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("dependency", dependency)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("storage.limiter.in-flight", inFlight, AtomicInteger::get)
+                .tag("dependency", dependency)
+                .register(meterRegistry);
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Share of the limit in use, which may briefly exceed 1 right after the limit drops.
+     */
+    public double utilization() {
+        return inFlight.get() / limit;
+    }
+
+    public <T> Mono<T> limit(Mono<T> call) {
+        return acquire().flatMap(permit -> {
+            long started = nanoClock.getAsLong();
+            AtomicBoolean overloaded = new AtomicBoolean();
+            return call
+                .doOnError(e -> overloaded.set(isOverload(e)))
+                .doFinally(signal -> {
+                    // Boxed, or the null of an early cancel would be unboxed and the permit leaked
+                    Long sample = signal == SignalType.CANCEL ? sampleOfCancel(started) : Long.valueOf(started);
+                    release(permit, sample, overloaded.get());
+                });
+        });
+    }
+
+    public <T> Flux<T> limit(Flux<T> call) {
+        return acquire().flatMapMany(permit -> {
+            long started = nanoClock.getAsLong();
+            AtomicBoolean released = new AtomicBoolean();
+            return call
+                .doOnEach(signal -> {
+                    if (released.compareAndSet(false, true)) {
+                        release(permit, started, signal.isOnError() && isOverload(signal.getThrowable()));
+                    }
+                })
+                .doFinally(signal -> {
+                    if (released.compareAndSet(false, true)) {
+                        release(permit, sampleOfCancel(started), false);
+                    }
+                });
+        });
+    }
+
+    /**
+     * Takes a permit and emits how many calls were in flight before it.
+     */
+    private Mono<Integer> acquire() {
+        return Mono.deferContextual(context -> {
+            Priority priority = Priority.of(context);
+            Mono<Integer> attempt = Mono.fromCallable(() -> {
+                int before = tryAcquire(priority);
+                if (before < 0) {
+                    throw rejected(priority);
+                }
+                return before;
+            });
+            if (priority == Priority.INTERACTIVE) {
+                return attempt;
+            }
+            return attempt
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, BULK_POLL_MIN)
+                    .maxBackoff(BULK_POLL_MAX)
+                    .filter(LoadShedException.class::isInstance)
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .timeout(bulkMaxWait, Mono.error(() -> rejected(priority)));
+        });
+    }
+
+    int tryAcquire(Priority priority) {
+        double current = limit;
+        int allowed = priority == Priority.BULK ? Math.max(1, (int) (current * bulkShare)) : (int) current;
+        while (true) {
+            int before = inFlight.get();
+            if (before >= allowed) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(before, before + 1)) {
+                return before;
+            }
+        }
+    }
+
+    /**
+     * Returns the permit and, unless {@code startedNanos} is null, adapts the limit to
+     * the call's outcome.
+     */
+    void release(int inFlightBefore, Long startedNanos, boolean overloaded) {
+        inFlight.decrementAndGet();
+        if (startedNanos == null) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        synchronized (this) {
+            if (overloaded || now - startedNanos > slowCallNanos) {
+                if (now - lastDecrease >= slowCallNanos) {
+                    limit = Math.max(minLimit, limit * backoff);
+                    lastDecrease = now;
+                }
+            } else if ((inFlightBefore + 1) * 2 >= limit) {
+                // Only grow while the limit is what holds calls back
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    // A call cancelled early says nothing about latency, but one cancelled after slowCall,
+    // typically by a timeout upstream, was at least that slow
+    private Long sampleOfCancel(long startedNanos) {
+        return nanoClock.getAsLong() - startedNanos > slowCallNanos ? startedNanos : null;
+    }
+
+    private boolean isOverload(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (overload.test(cause)) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private LoadShedException rejected(Priority priority) {
+        Counter.builder("storage.limiter.rejected")
+                .tag("dependency", dependency)
+                .tag("priority", priority.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+        return new LoadShedException(dependency + " is saturated (" + getInFlight() + " of " + getLimit() + " calls in flight)",
+                HttpStatus.SERVICE_UNAVAILABLE, retryAfter);
+    }
+}
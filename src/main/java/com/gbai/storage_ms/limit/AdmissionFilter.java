@@ -0,0 +1,157 @@
+package com.gbai.storage_ms.limit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gbai.storage_ms.model.ApiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits {@code /storage} requests before any work is done for them. Bulk endpoints
+ * (cascading deletes, full listings and verifications, batch presigning and stat
+ * rebuilds) are capped at a few concurrent requests and answered 429 past that; they
+ * are answered 503 outright while any dependency's limiter is nearly full, so cheap
+ * interactive calls keep the capacity that is left. Interactive requests only have a
+ * high safety cap, and proxied downloads keep their own. Rejections carry
+ * {@code Retry-After}.
+ *
+ * <p>Admitted requests run with their {@link Priority} in the Reactor context, which the
+ * {@link AdaptiveConcurrencyLimiter}s use to hold bulk calls to their share.
+ */
+@Slf4j
+public class AdmissionFilter implements WebFilter, Ordered {
+    private static final PathPatternParser PARSER = PathPatternParser.defaultInstance;
+    private static final PathPattern STORAGE = PARSER.parse("/storage/**");
+    private static final List<Route> BULK_ROUTES = List.of(
+            new Route(HttpMethod.DELETE, PARSER.parse("/storage/user/{userId}")),
+            new Route(HttpMethod.DELETE, PARSER.parse("/storage/competition/{competitionId}")),
+            new Route(HttpMethod.GET, PARSER.parse("/storage/competition/{competitionId}/videos")),
+            new Route(HttpMethod.GET, PARSER.parse("/storage/competition/{competitionId}/videos/stream")),
+            new Route(HttpMethod.GET, PARSER.parse("/storage/competition/{competitionId}/verify")),
+            new Route(HttpMethod.POST, PARSER.parse("/storage/verify")),
+            new Route(HttpMethod.POST, PARSER.parse("/storage/presigned-upload/batch")),
+            new Route(HttpMethod.POST, PARSER.parse("/storage/stats/rebuild")));
+
+    private final List<AdaptiveConcurrencyLimiter> limiters;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Map<Priority, Integer> maxConcurrent = new EnumMap<>(Priority.class);
+    private final Map<Priority, AtomicInteger> inFlight = new EnumMap<>(Priority.class);
+    private final double bulkShedUtilization;
+    private final Duration retryAfter;
+
+    public AdmissionFilter(List<AdaptiveConcurrencyLimiter> limiters, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           int interactiveMaxConcurrent, int bulkMaxConcurrent, double bulkShedUtilization, Duration retryAfter) {
+        this.limiters = limiters;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrent.put(Priority.INTERACTIVE, interactiveMaxConcurrent);
+        this.maxConcurrent.put(Priority.BULK, bulkMaxConcurrent);
+        this.bulkShedUtilization = bulkShedUtilization;
+        this.retryAfter = retryAfter;
+        for (Priority priority : Priority.values()) {
+            AtomicInteger count = new AtomicInteger();
+            inFlight.put(priority, count);
+            Gauge.builder("storage.admission.in-flight", count, AtomicInteger::get)
+                    .tag("priority", tag(priority))
+                    .description("Admitted requests being served")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // Before anything reads the body or looks up metadata
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        PathContainer path = request.getPath().pathWithinApplication();
+        if (!STORAGE.matches(path)) {
+            return chain.filter(exchange);
+        }
+        Priority priority = classify(request.getMethod(), path);
+        if (priority == Priority.BULK && dependencySaturated()) {
+            return reject(exchange, priority, HttpStatus.SERVICE_UNAVAILABLE, "overloaded",
+                    "The service is busy with other requests, try again later");
+        }
+        AtomicInteger count = inFlight.get(priority);
+        if (count.incrementAndGet() > maxConcurrent.get(priority)) {
+            count.decrementAndGet();
+            return reject(exchange, priority, HttpStatus.TOO_MANY_REQUESTS, "capacity",
+                    "Too many concurrent " + tag(priority) + " requests, try again later");
+        }
+        return chain.filter(exchange)
+            .contextWrite(priority::into)
+            .doFinally(signal -> count.decrementAndGet());
+    }
+
+    static Priority classify(HttpMethod method, PathContainer path) {
+        for (Route route : BULK_ROUTES) {
+            if (route.method().equals(method) && route.pattern().matches(path)) {
+                return Priority.BULK;
+            }
+        }
+        return Priority.INTERACTIVE;
+    }
+
+    private boolean dependencySaturated() {
+        for (AdaptiveConcurrencyLimiter limiter : limiters) {
+            if (limiter.utilization() >= bulkShedUtilization) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, Priority priority, HttpStatus status, String reason, String message) {
+        Counter.builder("storage.admission.rejected")
+                .tag("priority", tag(priority))
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(new ApiResponse<Void>(status.value(), message, null));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not write the rejection body", e);
+            return response.setComplete();
+        }
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    private static String tag(Priority priority) {
+        return priority.name().toLowerCase();
+    }
+
+    private record Route(HttpMethod method, PathPattern pattern) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.gbai.storage_ms.limit;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Work refused because the service or one of its dependencies is saturated; answered
+ * with {@link #getStatus()} and a {@code Retry-After} of {@link #getRetryAfter()}.
+ */
+@Getter
+public class LoadShedException extends RejectedExecutionException {
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public LoadShedException(String message, HttpStatus status, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+}
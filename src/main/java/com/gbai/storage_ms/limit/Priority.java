@@ -0,0 +1,23 @@
+package com.gbai.storage_ms.limit;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * How urgently a request's dependency calls should be served, carried in the Reactor
+ * context from the {@link AdmissionFilter} to the {@link AdaptiveConcurrencyLimiter}s.
+ * Work without a priority, such as background loops, counts as interactive unless it
+ * marks itself as bulk.
+ */
+public enum Priority {
+    INTERACTIVE,
+    BULK;
+
+    public Context into(Context context) {
+        return context.put(Priority.class, this);
+    }
+
+    public static Priority of(ContextView context) {
+        return context.getOrDefault(Priority.class, INTERACTIVE);
+    }
+}
@@ -0,0 +1,46 @@
+package com.gbai.storage_ms.limit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Puts every reactive repository call under the Mongo {@link AdaptiveConcurrencyLimiter},
+ * so queries only run while the limit has room for them.
+ */
+public class RepositoryLimitPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<AdaptiveConcurrencyLimiter> limiter;
+
+    public RepositoryLimitPostProcessor(ObjectProvider<AdaptiveConcurrencyLimiter> limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repository) -> proxyFactory.addAdvice(new LimitingInterceptor())));
+        }
+        return bean;
+    }
+
+    // The limiter is looked up on each call, as post-processors are created before it
+    private final class LimitingInterceptor implements MethodInterceptor {
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            if (!(result instanceof Mono<?>) && !(result instanceof Flux<?>)) {
+                return result;
+            }
+            AdaptiveConcurrencyLimiter mongo = limiter.getIfAvailable();
+            if (mongo == null) {
+                return result;
+            }
+            return result instanceof Mono<?> mono ? mongo.limit(mono) : mongo.limit((Flux<?>) result);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.gbai.storage_ms.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times reactive calls to a dependency per operation. Each subscription is recorded
+ * once under {@code <name>} tagged with the operation, its outcome (success, error or
+ * cancelled) and the {@link ErrorCause}, with a percentile histogram; calls currently
+ * running show up in the {@code <name>.in-flight} gauge of their operation.
+ */
+public class CallTimer {
+    private final MeterRegistry meterRegistry;
+    private final String name;
+    private final ConcurrentMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public CallTimer(MeterRegistry meterRegistry, String name) {
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+    }
+
+    public <T> Mono<T> record(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            Call started = start(operation);
+            return call
+                    .doOnSuccess(value -> started.stop("success", null))
+                    .doOnError(e -> started.stop("error", e))
+                    .doOnCancel(() -> started.stop("cancelled", null));
+        });
+    }
+
+    public <T> Flux<T> record(String operation, Flux<T> call) {
+        return Flux.defer(() -> {
+            Call started = start(operation);
+            return call
+                    .doOnComplete(() -> started.stop("success", null))
+                    .doOnError(e -> started.stop("error", e))
+                    .doOnCancel(() -> started.stop("cancelled", null));
+        });
+    }
+
+    private Call start(String operation) {
+        AtomicInteger active = inFlight.computeIfAbsent(operation, op -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder(name + ".in-flight", count, AtomicInteger::get)
+                    .tag("operation", op)
+                    .register(meterRegistry);
+            return count;
+        });
+        active.incrementAndGet();
+        return new Call(operation, active, Timer.start(meterRegistry));
+    }
+
+    private final class Call {
+        private final String operation;
+        private final AtomicInteger active;
+        private final Timer.Sample sample;
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        Call(String operation, AtomicInteger active, Timer.Sample sample) {
+            this.operation = operation;
+            this.active = active;
+            this.sample = sample;
+        }
+
+        void stop(String outcome, Throwable error) {
+            if (!stopped.compareAndSet(false, true)) {
+                return;
+            }
+            active.decrementAndGet();
+            sample.stop(Timer.builder(name)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .tag("exception", ErrorCause.of(error))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.gbai.storage_ms.metrics;
+
+import io.minio.errors.ErrorResponseException;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Low-cardinality name of what went wrong, for metric tags: the S3 error code for MinIO
+ * error responses, otherwise the exception's simple class name.
+ */
+public final class ErrorCause {
+    public static final String NONE = "none";
+
+    private ErrorCause() {
+    }
+
+    public static String of(Throwable error) {
+        if (error == null) {
+            return NONE;
+        }
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof ErrorResponseException e && e.errorResponse() != null) {
+            return e.errorResponse().code();
+        }
+        return cause.getClass().getSimpleName();
+    }
+}
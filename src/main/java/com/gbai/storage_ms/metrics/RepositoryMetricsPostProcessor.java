@@ -0,0 +1,70 @@
+package com.gbai.storage_ms.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records every reactive repository call in the {@code mongo.calls} timers, tagged with
+ * {@code <Repository>.<method>}. Spring Data's own repository metrics stop the clock
+ * when the method returns, which for a reactive repository is before the query runs;
+ * these time the subscription instead.
+ */
+public class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private volatile CallTimer calls;
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, repository) -> proxyFactory.addAdvice(
+                            new TimingInterceptor(repository.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    // The registry is looked up on first use, as post-processors are created before it
+    private CallTimer calls() {
+        CallTimer timer = calls;
+        if (timer == null) {
+            synchronized (this) {
+                if (calls == null) {
+                    calls = new CallTimer(meterRegistry.getObject(), "mongo.calls");
+                }
+                timer = calls;
+            }
+        }
+        return timer;
+    }
+
+    private final class TimingInterceptor implements MethodInterceptor {
+        private final String repository;
+
+        TimingInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            String operation = repository + "." + invocation.getMethod().getName();
+            if (result instanceof Mono<?> mono) {
+                return calls().record(operation, mono);
+            }
+            if (result instanceof Flux<?> flux) {
+                return calls().record(operation, flux);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadItem {
+    private int index; // position in the request's file list
+    private String originalFilename;
+    private PresignedUrlResponse upload; // null when this item failed
+    private String error;
+}
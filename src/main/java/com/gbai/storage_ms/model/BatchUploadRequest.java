@@ -0,0 +1,16 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadRequest {
+    private String competitionId;
+    private String uploaderId;
+    private List<UploadFileRequest> files;
+}
@@ -0,0 +1,14 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletionSummary {
+    private long requested;
+    private long deleted; // object and metadata removed
+    private long failed; // left in place, safe to retry
+}
@@ -0,0 +1,15 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultipartPart {
+    private int partNumber;
+    private String url; // presigned PUT, only for parts still to upload
+    private String etag; // only for parts already uploaded
+    private long size;
+}
@@ -0,0 +1,21 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultipartUploadResponse {
+    private String fileId;
+    private String bucket;
+    private String uploadId;
+    private long partSize;
+    private int partCount;
+    private long expiry;
+    private List<MultipartPart> uploadedParts;
+    private List<MultipartPart> pendingParts;
+}
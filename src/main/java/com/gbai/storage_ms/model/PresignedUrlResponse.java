@@ -1,16 +1,33 @@
 package com.gbai.storage_ms.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class PresignedUrlResponse {
     private String url;
     private String fileId;
     private String bucket;
     private String method; // PUT or GET
     private long expiry;
-} 
\ No newline at end of file
+    private boolean deduplicated; // the file is already stored: no url, nothing to upload
+
+    public PresignedUrlResponse(String url, String fileId, String bucket, String method, long expiry) {
+        this.url = url;
+        this.fileId = fileId;
+        this.bucket = bucket;
+        this.method = method;
+        this.expiry = expiry;
+    }
+
+    /**
+     * Answer to an upload request whose file the uploader has stored before; the video
+     * is complete right away.
+     */
+    public static PresignedUrlResponse deduplicated(String fileId, String bucket) {
+        PresignedUrlResponse response = new PresignedUrlResponse(null, fileId, bucket, null, 0);
+        response.setDeduplicated(true);
+        return response;
+    }
+}
@@ -0,0 +1,28 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Progress of a reconciliation pass, so an interrupted pass resumes where it stopped,
+ * and the lease that keeps instances from reconciling at the same time.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "reconcile_checkpoints")
+public class ReconcileCheckpoint {
+    @Id
+    private String id;
+    private String bucket; // null when no pass is in progress
+    private String afterKey; // last object name handled in bucket
+    private Instant passStartedAt;
+    private Instant updatedAt;
+    private String leaseOwner;
+    private Instant leaseUntil;
+}
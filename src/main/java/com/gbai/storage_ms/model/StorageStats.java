@@ -0,0 +1,51 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Number and total size of the completed uploads of one competition or uploader,
+ * maintained with {@code $inc} as uploads complete and videos are deleted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "storage_stats")
+public class StorageStats {
+    public static final String COMPETITION = "competition";
+    public static final String UPLOADER = "uploader";
+
+    @Id
+    private String id; // "<scope>:<key>"
+    private String scope; // competition, uploader
+    private String key;
+    private long videos;
+    private long bytes;
+    private Instant updatedAt;
+
+    public static String id(String scope, String key) {
+        return scope + ":" + key;
+    }
+
+    public static StorageStats empty(String scope, String key) {
+        return new StorageStats(id(scope, key), scope, key, 0, 0, null);
+    }
+
+    /**
+     * A change to one competition's or uploader's counters.
+     */
+    public record Delta(String scope, String key, long videos, long bytes) {
+        public String id() {
+            return StorageStats.id(scope, key);
+        }
+
+        public Delta plus(Delta other) {
+            return new Delta(scope, key, videos + other.videos, bytes + other.bytes);
+        }
+    }
+}
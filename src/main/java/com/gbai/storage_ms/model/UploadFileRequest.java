@@ -0,0 +1,14 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadFileRequest {
+    private String originalFilename;
+    private String contentType;
+    private long fileSize;
+}
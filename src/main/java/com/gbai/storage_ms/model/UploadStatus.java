@@ -0,0 +1,7 @@
+package com.gbai.storage_ms.model;
+
+public enum UploadStatus {
+    PENDING, // upload URL issued, object not seen yet
+    COMPLETE,
+    FAILED // object arrived with a different size than announced
+}
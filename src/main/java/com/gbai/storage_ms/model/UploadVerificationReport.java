@@ -0,0 +1,19 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadVerificationReport {
+    private long checked;
+    private List<String> present = new ArrayList<>();
+    private List<String> missing = new ArrayList<>();
+    private List<String> sizeMismatched = new ArrayList<>(); // stored, but not with the announced fileSize
+    private List<String> unknown = new ArrayList<>(); // requested ids without metadata
+}
@@ -0,0 +1,15 @@
+package com.gbai.storage_ms.model;
+
+/**
+ * {@link VideoObjectRef} plus the fields a {@link com.gbai.storage_ms.event.VideoEvent}
+ * carries and the storage statistics count, for paths that delete videos and announce it.
+ */
+public interface VideoEventRef extends VideoObjectRef {
+    String getUploaderId();
+
+    String getOriginalFilename();
+
+    UploadStatus getUploadStatus();
+
+    Long getActualSize();
+}
@@ -2,19 +2,39 @@ package com.gbai.storage_ms.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.Instant;
 
 @Data
 @Document(collection = "videos")
-public class VideoMetadata {
+// Listing, paging and competition cascades; also covers the plain competitionId lookup
+@CompoundIndex(name = "competition_upload_time", def = "{'competitionId': 1, 'uploadTimestamp': 1, '_id': 1}")
+// Merging a competition's videos with its bucket listing
+@CompoundIndex(name = "competition_object", def = "{'competitionId': 1, 'storedFilename': 1}")
+// Merging a shared bucket's listing with its videos; legacy documents have no bucket
+@CompoundIndex(name = "bucket_object", def = "{'bucket': 1, 'storedFilename': 1}", partialFilter = "{'bucket': {$exists: true}}")
+@CompoundIndex(name = "uploader", def = "{'uploaderId': 1}")
+// Finding an uploader's stored copy of a file when uploads are deduplicated
+@CompoundIndex(name = "uploader_content", def = "{'uploaderId': 1, 'etag': 1, 'actualSize': 1}", partialFilter = "{'uploadStatus': 'COMPLETE'}")
+// Only pending uploads are indexed, so the index stays small
+@CompoundIndex(name = "pending_uploads", def = "{'uploadStatus': 1, 'uploadTimestamp': 1}", partialFilter = "{'uploadStatus': 'PENDING'}")
+public class VideoMetadata implements VideoEventRef {
     @Id
     private String id;
     private String competitionId;
     private String uploaderId;
     private String originalFilename;
     private String storedFilename;
+    private String bucket; // null on documents written before layouts were recorded: competition-<competitionId>
+    private String objectLayout; // name of the ObjectLayout the object was stored under
     private Instant uploadTimestamp;
     private long fileSize;
     private String contentType;
+    private String multipartUploadId; // set while a multipart upload is in progress
+    private long partSize;
+    private UploadStatus uploadStatus; // null on documents written before uploads were tracked
+    private Long actualSize;
+    private String etag;
+    private Instant uploadCompletedAt;
 } 
\ No newline at end of file
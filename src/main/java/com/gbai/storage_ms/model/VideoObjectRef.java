@@ -0,0 +1,18 @@
+package com.gbai.storage_ms.model;
+
+/**
+ * Closed projection of {@link VideoMetadata} with just what is needed to address, and
+ * so sign or delete, a video's object.
+ */
+public interface VideoObjectRef {
+    String getId();
+
+    String getCompetitionId();
+
+    String getStoredFilename();
+
+    /**
+     * Null for videos stored before the bucket was recorded.
+     */
+    String getBucket();
+}
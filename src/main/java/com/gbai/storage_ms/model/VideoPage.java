@@ -0,0 +1,15 @@
+package com.gbai.storage_ms.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoPage {
+    private List<PresignedUrlResponse> items;
+    private String nextCursor; // null on the last page
+}
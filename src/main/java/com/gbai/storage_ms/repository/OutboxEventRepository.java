@@ -0,0 +1,7 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.event.OutboxEvent;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface OutboxEventRepository extends ReactiveMongoRepository<OutboxEvent, String>, OutboxEventRepositoryCustom {
+}
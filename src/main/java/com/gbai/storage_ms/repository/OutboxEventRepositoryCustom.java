@@ -0,0 +1,33 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.event.OutboxEvent;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+
+public interface OutboxEventRepositoryCustom {
+    /**
+     * Oldest events not sent yet, leaving out parked ones.
+     */
+    Flux<OutboxEvent> findPending(int limit);
+
+    /**
+     * Parks a pending event that can never be sent, so it is no longer relayed.
+     */
+    Mono<Void> markFailed(String id, String failure, Instant failedAt);
+
+    /**
+     * Sets {@code sentAt} on the given events that are still pending; events already
+     * marked keep their original time, so repeating the call is harmless.
+     */
+    Mono<Long> markSent(Collection<String> ids, Instant sentAt);
+
+    /**
+     * Creates the pending-scan index and the TTL index that drops sent events after
+     * {@code retention}.
+     */
+    Mono<Void> ensureIndexes(Duration retention);
+}
@@ -0,0 +1,52 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.event.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+
+@RequiredArgsConstructor
+public class OutboxEventRepositoryCustomImpl implements OutboxEventRepositoryCustom {
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Flux<OutboxEvent> findPending(int limit) {
+        Query query = Query.query(Criteria.where("sentAt").is(null).and("failedAt").is(null))
+                .with(Sort.by(Sort.Order.asc("createdAt")))
+                .limit(limit);
+        return mongoTemplate.find(query, OutboxEvent.class);
+    }
+
+    @Override
+    public Mono<Void> markFailed(String id, String failure, Instant failedAt) {
+        Query query = Query.query(Criteria.where("_id").is(id).and("sentAt").is(null));
+        return mongoTemplate.updateFirst(query, new Update().set("failedAt", failedAt).set("failure", failure), OutboxEvent.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Long> markSent(Collection<String> ids, Instant sentAt) {
+        Query query = Query.query(Criteria.where("_id").in(ids).and("sentAt").is(null));
+        return mongoTemplate.updateMulti(query, new Update().set("sentAt", sentAt), OutboxEvent.class)
+                .map(result -> result.getModifiedCount());
+    }
+
+    @Override
+    public Mono<Void> ensureIndexes(Duration retention) {
+        return mongoTemplate.indexOps(OutboxEvent.class)
+                .ensureIndex(new Index().on("sentAt", Sort.Direction.ASC).on("createdAt", Sort.Direction.ASC).named("pending_scan"))
+                .then(mongoTemplate.indexOps(OutboxEvent.class)
+                        .ensureIndex(new Index().on("sentAt", Sort.Direction.ASC).expire(retention).named("sent_ttl")))
+                .then();
+    }
+}
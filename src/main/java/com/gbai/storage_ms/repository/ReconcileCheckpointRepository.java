@@ -0,0 +1,7 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.ReconcileCheckpoint;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface ReconcileCheckpointRepository extends ReactiveMongoRepository<ReconcileCheckpoint, String>, ReconcileCheckpointRepositoryCustom {
+}
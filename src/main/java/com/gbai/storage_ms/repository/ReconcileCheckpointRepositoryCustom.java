@@ -0,0 +1,22 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.ReconcileCheckpoint;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface ReconcileCheckpointRepositoryCustom {
+    /**
+     * Takes the lease on the checkpoint if it is free or expired and returns the
+     * checkpoint; empty while another owner holds it.
+     */
+    Mono<ReconcileCheckpoint> acquire(String id, String owner, Instant now, Instant leaseUntil);
+
+    /**
+     * Records progress and extends the lease; empty if the lease was lost meanwhile.
+     */
+    Mono<ReconcileCheckpoint> advance(String id, String owner, String bucket, String afterKey, Instant passStartedAt,
+                                      Instant now, Instant leaseUntil);
+
+    Mono<Void> release(String id, String owner);
+}
@@ -0,0 +1,49 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.ReconcileCheckpoint;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+@RequiredArgsConstructor
+public class ReconcileCheckpointRepositoryCustomImpl implements ReconcileCheckpointRepositoryCustom {
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<ReconcileCheckpoint> acquire(String id, String owner, Instant now, Instant leaseUntil) {
+        Query free = Query.query(Criteria.where("_id").is(id).orOperator(
+                Criteria.where("leaseUntil").lt(now),
+                Criteria.where("leaseUntil").is(null),
+                Criteria.where("leaseOwner").is(owner)));
+        Update take = new Update().set("leaseOwner", owner).set("leaseUntil", leaseUntil);
+        // Upserting a held checkpoint collides with the existing _id, which means someone else has it
+        return mongoTemplate.findAndModify(free, take, FindAndModifyOptions.options().upsert(true).returnNew(true), ReconcileCheckpoint.class)
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty());
+    }
+
+    @Override
+    public Mono<ReconcileCheckpoint> advance(String id, String owner, String bucket, String afterKey, Instant passStartedAt,
+                                             Instant now, Instant leaseUntil) {
+        Query owned = Query.query(Criteria.where("_id").is(id).and("leaseOwner").is(owner));
+        Update update = new Update()
+                .set("bucket", bucket)
+                .set("afterKey", afterKey)
+                .set("passStartedAt", passStartedAt)
+                .set("updatedAt", now)
+                .set("leaseUntil", leaseUntil);
+        return mongoTemplate.findAndModify(owned, update, FindAndModifyOptions.options().returnNew(true), ReconcileCheckpoint.class);
+    }
+
+    @Override
+    public Mono<Void> release(String id, String owner) {
+        Query owned = Query.query(Criteria.where("_id").is(id).and("leaseOwner").is(owner));
+        return mongoTemplate.updateFirst(owned, new Update().unset("leaseOwner").unset("leaseUntil"), ReconcileCheckpoint.class).then();
+    }
+}
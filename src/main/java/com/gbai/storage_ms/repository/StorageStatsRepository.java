@@ -0,0 +1,7 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.StorageStats;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+public interface StorageStatsRepository extends ReactiveMongoRepository<StorageStats, String>, StorageStatsRepositoryCustom {
+}
@@ -0,0 +1,20 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.StorageStats;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface StorageStatsRepositoryCustom {
+    /**
+     * Applies the deltas with one unordered bulk write of {@code $inc} upserts.
+     */
+    Mono<Void> increment(Collection<StorageStats.Delta> deltas, Instant now);
+
+    /**
+     * Recomputes every competition's and uploader's counters from the completed videos
+     * with server-side aggregations, and drops the counters of those that have none left.
+     */
+    Mono<Void> rebuild(Instant now);
+}
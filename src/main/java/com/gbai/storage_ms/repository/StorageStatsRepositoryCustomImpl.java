@@ -0,0 +1,78 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.StorageStats;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class StorageStatsRepositoryCustomImpl implements StorageStatsRepositoryCustom {
+    private static final Map<String, String> SCOPE_FIELDS = Map.of(
+            StorageStats.COMPETITION, "competitionId",
+            StorageStats.UPLOADER, "uploaderId");
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Mono<Void> increment(Collection<StorageStats.Delta> deltas, Instant now) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StorageStats.class);
+        for (StorageStats.Delta delta : deltas) {
+            bulk.upsert(Query.query(Criteria.where("_id").is(delta.id())), new Update()
+                    .inc("videos", delta.videos())
+                    .inc("bytes", delta.bytes())
+                    .set("updatedAt", now)
+                    .setOnInsert("scope", delta.scope())
+                    .setOnInsert("key", delta.key()));
+        }
+        return bulk.execute().then();
+    }
+
+    @Override
+    public Mono<Void> rebuild(Instant now) {
+        String videos = mongoTemplate.getCollectionName(VideoMetadata.class);
+        String stats = mongoTemplate.getCollectionName(StorageStats.class);
+        return Flux.fromIterable(SCOPE_FIELDS.entrySet())
+                .concatMap(scope -> mongoTemplate.getCollection(videos)
+                        .flatMap(collection -> Mono.from(collection.aggregate(pipeline(scope.getKey(), scope.getValue(), stats, now)).toCollection())))
+                // Counters not rewritten above belong to competitions and uploaders without completed videos
+                .then(mongoTemplate.remove(Query.query(Criteria.where("updatedAt").lt(now)), StorageStats.class))
+                .then();
+    }
+
+    private static List<Document> pipeline(String scope, String field, String into, Instant now) {
+        return List.of(
+                new Document("$match", new Document("uploadStatus", UploadStatus.COMPLETE.name())
+                        .append(field, new Document("$type", "string"))),
+                new Document("$group", new Document("_id", "$" + field)
+                        .append("videos", new Document("$sum", 1))
+                        .append("bytes", new Document("$sum", new Document("$ifNull", List.of("$actualSize", 0L))))),
+                new Document("$project", new Document("_id", new Document("$concat", List.of(scope + ":", "$_id")))
+                        .append("scope", new Document("$literal", scope))
+                        .append("key", "$_id")
+                        .append("videos", 1)
+                        .append("bytes", 1)
+                        .append("updatedAt", new Document("$literal", Date.from(now)))),
+                new Document("$merge", new Document("into", into)
+                        .append("on", "_id")
+                        .append("whenMatched", "replace")
+                        .append("whenNotMatched", "insert")));
+    }
+}
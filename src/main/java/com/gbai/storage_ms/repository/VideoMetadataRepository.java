@@ -1,10 +1,27 @@
 package com.gbai.storage_ms.repository;
 
+import com.gbai.storage_ms.model.VideoEventRef;
 import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.model.VideoObjectRef;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
-public interface VideoMetadataRepository extends ReactiveMongoRepository<VideoMetadata, String> {
+public interface VideoMetadataRepository extends ReactiveMongoRepository<VideoMetadata, String>, VideoMetadataRepositoryCustom {
     Flux<VideoMetadata> findByCompetitionId(String competitionId);
     Flux<VideoMetadata> findByUploaderId(String uploaderId);
+
+    // Projections that only load the fields needed to sign or delete objects. The fields
+    // are spelled out because VideoMetadata implements these interfaces, which Spring Data
+    // would otherwise treat as no projection at all.
+    @Query(value = "{ 'competitionId': ?0 }", fields = "{ 'competitionId': 1, 'storedFilename': 1, 'bucket': 1 }")
+    Flux<VideoObjectRef> findRefsByCompetitionId(String competitionId);
+
+    @Query(value = "{ 'competitionId': ?0 }", fields = EVENT_REF_FIELDS)
+    Flux<VideoEventRef> findEventRefsByCompetitionId(String competitionId);
+
+    @Query(value = "{ 'uploaderId': ?0 }", fields = EVENT_REF_FIELDS)
+    Flux<VideoEventRef> findEventRefsByUploaderId(String uploaderId);
+
+    String EVENT_REF_FIELDS = "{ 'competitionId': 1, 'storedFilename': 1, 'bucket': 1, 'uploaderId': 1, 'originalFilename': 1, 'uploadStatus': 1, 'actualSize': 1 }";
 } 
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface VideoMetadataRepositoryCustom {
+    /**
+     * Inserts all documents with a single insertMany instead of one save per document.
+     */
+    Flux<VideoMetadata> insertAll(Collection<VideoMetadata> videos);
+
+    /**
+     * Applies inserts and deletes in one unordered bulk write.
+     */
+    Mono<Void> bulkWrite(Collection<VideoMetadata> inserts, Collection<String> deleteIds);
+
+    /**
+     * Deletes the given videos and emits the documents this call removed, leaving out
+     * any another deleter removed first, so each document is reported by exactly one
+     * caller. Documents another deleter is still working on are left to it; its claim on
+     * them expires after {@code storage.metadata.timeout} should it die.
+     */
+    Flux<VideoMetadata> removeAll(Collection<String> videoIds);
+
+    /**
+     * Creates the indexes declared on {@link VideoMetadata}; existing ones are left as
+     * they are.
+     */
+    Mono<Void> ensureIndexes();
+
+    /**
+     * Keyset page of a competition's videos ordered by (uploadTimestamp, id), starting
+     * after the given position; pass nulls for the first page. Documents without an
+     * uploadTimestamp sort first, and a position with a null timestamp and an id is one
+     * among them. Only the id, competitionId, storedFilename, bucket and uploadTimestamp
+     * are loaded.
+     */
+    Flux<VideoMetadata> findCompetitionPage(String competitionId, Instant afterTimestamp, String afterId, int limit);
+
+    /**
+     * Records the object that arrived for a video and finishes any multipart upload.
+     * Matches only while the video is not {@code COMPLETE}, so a repeated notification
+     * changes nothing and yields empty.
+     */
+    Mono<VideoMetadata> recordUpload(String videoId, String storedFilename, UploadStatus status, long actualSize,
+                                     String etag, Instant completedAt);
+
+    /**
+     * A competition's videos ordered by stored object name, starting after
+     * {@code afterStoredFilename} (null for all), for merging with a bucket listing.
+     */
+    Flux<VideoMetadata> findCompetitionObjectsAfter(String competitionId, String afterStoredFilename);
+
+    /**
+     * The videos stored in a bucket ordered by stored object name, starting after
+     * {@code afterStoredFilename} (null for all). For a competition's own bucket, pass
+     * the competition so its documents without a recorded bucket are included.
+     */
+    Flux<VideoMetadata> findBucketObjectsAfter(String bucket, String competitionId, String afterStoredFilename);
+
+    /**
+     * A completed upload of the uploader with the given ETag and size, or empty. Only the
+     * fields needed to reference its object are loaded.
+     */
+    Mono<VideoMetadata> findUploadedCopy(String uploaderId, String etag, long actualSize);
+
+    /**
+     * The videos stored as any of the given objects, with the id, competitionId, bucket
+     * and storedFilename loaded. Matches names and buckets independently, so callers
+     * pair them up; documents without a recorded bucket match through
+     * {@code legacyCompetitionIds}, the competitions owning the given competition buckets.
+     */
+    Flux<VideoMetadata> findObjectRefs(Collection<String> buckets, Collection<String> legacyCompetitionIds,
+                                       Collection<String> storedFilenames);
+}
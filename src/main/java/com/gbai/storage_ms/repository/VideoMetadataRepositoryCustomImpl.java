@@ -0,0 +1,174 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.UUID;
+
+public class VideoMetadataRepositoryCustomImpl implements VideoMetadataRepositoryCustom {
+    private static final String REMOVAL_CLAIM = "removalClaim";
+    private static final String REMOVAL_CLAIMED_AT = "removalClaimedAt";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Duration claimTimeout;
+
+    // A claim outlives its deleter only if that one died before removing; once a metadata
+    // write would have timed out, the documents are free to claim again
+    public VideoMetadataRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate,
+                                             @Value("${storage.metadata.timeout:5s}") Duration claimTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.claimTimeout = claimTimeout;
+    }
+
+    @Override
+    public Flux<VideoMetadata> insertAll(Collection<VideoMetadata> videos) {
+        return mongoTemplate.insert(videos, VideoMetadata.class);
+    }
+
+    @Override
+    public Mono<Void> bulkWrite(Collection<VideoMetadata> inserts, Collection<String> deleteIds) {
+        if (inserts.isEmpty() && deleteIds.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VideoMetadata.class);
+        inserts.forEach(bulk::insert);
+        if (!deleteIds.isEmpty()) {
+            bulk.remove(Query.query(Criteria.where("_id").in(deleteIds)));
+        }
+        return bulk.execute().then();
+    }
+
+    @Override
+    public Flux<VideoMetadata> removeAll(Collection<String> videoIds) {
+        if (videoIds.isEmpty()) {
+            return Flux.empty();
+        }
+        Instant now = Instant.now();
+        if (videoIds.size() == 1) {
+            Criteria claimable = Criteria.where("_id").is(videoIds.iterator().next()).andOperator(claimable(now));
+            return mongoTemplate.findAndRemove(Query.query(claimable), VideoMetadata.class).flux();
+        }
+        // findAllAndRemove reports what it found, not what it removed; claiming the
+        // documents first makes concurrent deleters report disjoint sets
+        String claim = UUID.randomUUID().toString();
+        Query unclaimed = Query.query(Criteria.where("_id").in(videoIds).andOperator(claimable(now)));
+        Query claimed = Query.query(Criteria.where("_id").in(videoIds).and(REMOVAL_CLAIM).is(claim));
+        return mongoTemplate.updateMulti(unclaimed, Update.update(REMOVAL_CLAIM, claim).set(REMOVAL_CLAIMED_AT, now), VideoMetadata.class)
+                .thenMany(mongoTemplate.find(claimed, VideoMetadata.class))
+                .collectList()
+                .flatMapMany(removed -> mongoTemplate.remove(claimed, VideoMetadata.class)
+                        .thenMany(Flux.fromIterable(removed)));
+    }
+
+    // Documents nobody claimed, or whose claim was left behind by a deleter that died
+    private Criteria claimable(Instant now) {
+        return new Criteria().orOperator(
+                Criteria.where(REMOVAL_CLAIM).exists(false),
+                Criteria.where(REMOVAL_CLAIMED_AT).lt(now.minus(claimTimeout)));
+    }
+
+    @Override
+    public Mono<Void> ensureIndexes() {
+        ReactiveIndexOperations indexOps = mongoTemplate.indexOps(VideoMetadata.class);
+        return Flux.fromIterable(new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                        .resolveIndexFor(VideoMetadata.class))
+                .concatMap(indexOps::ensureIndex)
+                .then();
+    }
+
+    @Override
+    public Flux<VideoMetadata> findCompetitionPage(String competitionId, Instant afterTimestamp, String afterId, int limit) {
+        Criteria criteria = Criteria.where("competitionId").is(competitionId);
+        if (afterTimestamp != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where("uploadTimestamp").gt(afterTimestamp),
+                    Criteria.where("uploadTimestamp").is(afterTimestamp).and("_id").gt(afterId));
+        } else if (afterId != null) {
+            // Missing and null timestamps sort together before every date
+            criteria = criteria.orOperator(
+                    Criteria.where("uploadTimestamp").ne(null),
+                    Criteria.where("uploadTimestamp").is(null).and("_id").gt(afterId));
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Order.asc("uploadTimestamp"), Sort.Order.asc("_id")))
+                .limit(limit);
+        query.fields().include("competitionId", "storedFilename", "bucket", "uploadTimestamp");
+        return mongoTemplate.find(query, VideoMetadata.class);
+    }
+
+    @Override
+    public Mono<VideoMetadata> recordUpload(String videoId, String storedFilename, UploadStatus status, long actualSize,
+                                            String etag, Instant completedAt) {
+        Query query = Query.query(Criteria.where("_id").is(videoId)
+                .and("storedFilename").is(storedFilename)
+                .and("uploadStatus").ne(UploadStatus.COMPLETE));
+        Update update = new Update()
+                .set("uploadStatus", status)
+                .set("actualSize", actualSize)
+                .set("etag", etag)
+                .set("uploadCompletedAt", completedAt)
+                .unset("multipartUploadId");
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), VideoMetadata.class);
+    }
+
+    @Override
+    public Flux<VideoMetadata> findCompetitionObjectsAfter(String competitionId, String afterStoredFilename) {
+        Criteria criteria = Criteria.where("competitionId").is(competitionId);
+        if (afterStoredFilename != null) {
+            criteria = criteria.and("storedFilename").gt(afterStoredFilename);
+        }
+        return mongoTemplate.find(Query.query(criteria).with(Sort.by(Sort.Order.asc("storedFilename"))), VideoMetadata.class);
+    }
+
+    @Override
+    public Flux<VideoMetadata> findBucketObjectsAfter(String bucket, String competitionId, String afterStoredFilename) {
+        Criteria inBucket = Criteria.where("bucket").is(bucket);
+        if (competitionId != null) {
+            // Documents from before the bucket was recorded are in their competition's bucket
+            inBucket = new Criteria().orOperator(inBucket, Criteria.where("competitionId").is(competitionId).and("bucket").is(null));
+        }
+        Criteria criteria = afterStoredFilename == null
+                ? inBucket
+                : new Criteria().andOperator(inBucket, Criteria.where("storedFilename").gt(afterStoredFilename));
+        return mongoTemplate.find(Query.query(criteria).with(Sort.by(Sort.Order.asc("storedFilename"))), VideoMetadata.class);
+    }
+
+    @Override
+    public Mono<VideoMetadata> findUploadedCopy(String uploaderId, String etag, long actualSize) {
+        Query query = Query.query(Criteria.where("uploaderId").is(uploaderId)
+                .and("etag").is(etag)
+                .and("actualSize").is(actualSize)
+                .and("uploadStatus").is(UploadStatus.COMPLETE));
+        query.fields().include("competitionId", "storedFilename", "bucket", "objectLayout", "actualSize", "etag");
+        return mongoTemplate.findOne(query, VideoMetadata.class);
+    }
+
+    @Override
+    public Flux<VideoMetadata> findObjectRefs(Collection<String> buckets, Collection<String> legacyCompetitionIds,
+                                              Collection<String> storedFilenames) {
+        Criteria inBuckets = Criteria.where("bucket").in(buckets);
+        if (!legacyCompetitionIds.isEmpty()) {
+            inBuckets = new Criteria().orOperator(inBuckets,
+                    Criteria.where("competitionId").in(legacyCompetitionIds).and("bucket").is(null));
+        }
+        Query query = Query.query(new Criteria().andOperator(inBuckets, Criteria.where("storedFilename").in(storedFilenames)));
+        query.fields().include("competitionId", "storedFilename", "bucket");
+        return mongoTemplate.find(query, VideoMetadata.class);
+    }
+}
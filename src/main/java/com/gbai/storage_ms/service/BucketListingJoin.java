@@ -0,0 +1,76 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.storage.StoredObject;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted merge of a bucket listing with the metadata of the videos stored in it. Both
+ * inputs must be ordered by object name in code point order, which is how S3 lists keys
+ * and how Mongo sorts strings without a collation, so the join streams with a small
+ * prefetch instead of loading either side.
+ */
+final class BucketListingJoin {
+    static final Comparator<String> CODE_POINT_ORDER = (a, b) -> {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if (x != y) {
+                return Integer.compare(x, y);
+            }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    };
+
+    private static final Comparator<Entry> BY_NAME = Comparator.comparing(Entry::name, CODE_POINT_ORDER);
+
+    private BucketListingJoin() {
+    }
+
+    /**
+     * One entry per video, paired with its object or with a null {@code object}, and one
+     * per object no video is stored as, with a null {@code video}. Videos sharing an
+     * object, as deduplicated uploads do, each get an entry with the same object.
+     */
+    static Flux<Entry> join(Flux<VideoMetadata> videosByStoredFilename, Flux<StoredObject> objects) {
+        Flux<Entry> videos = videosByStoredFilename
+                .filter(video -> video.getStoredFilename() != null)
+                .map(video -> new Entry(video.getStoredFilename(), video, null));
+        return Flux.mergeComparing(BY_NAME, videos, objects.map(object -> new Entry(object.name(), null, object)))
+                .bufferUntilChanged(Entry::name)
+                .flatMapIterable(BucketListingJoin::combine);
+    }
+
+    private static List<Entry> combine(List<Entry> sameName) {
+        if (sameName.size() == 1) {
+            return sameName;
+        }
+        StoredObject object = null;
+        List<VideoMetadata> videos = new ArrayList<>();
+        for (Entry entry : sameName) {
+            object = entry.object() != null ? entry.object() : object;
+            if (entry.video() != null) {
+                videos.add(entry.video());
+            }
+        }
+        if (videos.isEmpty()) {
+            return List.of(new Entry(sameName.get(0).name(), null, object));
+        }
+        List<Entry> combined = new ArrayList<>(videos.size());
+        for (VideoMetadata video : videos) {
+            combined.add(new Entry(sameName.get(0).name(), video, object));
+        }
+        return combined;
+    }
+
+    record Entry(String name, VideoMetadata video, StoredObject object) {
+    }
+}
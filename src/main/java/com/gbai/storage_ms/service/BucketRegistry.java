@@ -0,0 +1,91 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.cache.BoundedCache;
+import com.gbai.storage_ms.layout.CompetitionBucketLayout;
+import com.gbai.storage_ms.storage.StorageBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.errors.ErrorResponseException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers which buckets are known to exist so the upload path does not ask MinIO on
+ * every request. Concurrent lookups of an unknown bucket share a single
+ * exists/create round trip.
+ */
+@Slf4j
+@Component
+public class BucketRegistry {
+    private final StorageBackend storageBackend;
+    private final BoundedCache<String, Boolean> knownBuckets;
+    private final ConcurrentMap<String, Mono<String>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+
+    public BucketRegistry(StorageBackend storageBackend,
+                          MeterRegistry meterRegistry,
+                          @Value("${minio.bucket-cache.ttl:10m}") Duration ttl,
+                          @Value("${minio.bucket-cache.max-entries:10000}") long maxEntries) {
+        this.storageBackend = storageBackend;
+        this.ttl = ttl;
+        this.knownBuckets = new BoundedCache<>("minio.buckets", maxEntries, Clock.systemUTC(), meterRegistry);
+    }
+
+    public Mono<String> ensureBucket(String bucket) {
+        if (knownBuckets.getIfPresent(bucket) != null) {
+            return Mono.just(bucket);
+        }
+        return inFlight.computeIfAbsent(bucket, b -> createIfMissing(b)
+                .doOnSuccess(created -> knownBuckets.put(b, Boolean.TRUE, ttl))
+                .doFinally(signal -> inFlight.remove(b))
+                .cache());
+    }
+
+    /**
+     * Drops the cached entry when MinIO reports that the bucket no longer exists, so
+     * the next upload recreates it. Returns whether the error was a missing bucket.
+     */
+    public boolean evictIfMissing(String bucket, Throwable error) {
+        if (error instanceof ErrorResponseException e && "NoSuchBucket".equals(e.errorResponse().code())) {
+            log.warn("Bucket {} disappeared, evicting it from the registry", bucket);
+            knownBuckets.invalidate(bucket);
+            return true;
+        }
+        return false;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        storageBackend.listBuckets()
+                .filter(bucket -> bucket.startsWith(CompetitionBucketLayout.BUCKET_PREFIX))
+                .doOnNext(bucket -> knownBuckets.put(bucket, Boolean.TRUE, ttl))
+                .count()
+                .subscribe(
+                        count -> log.info("Bucket registry warmed with {} buckets", count),
+                        error -> log.warn("Bucket registry warm-up failed: {}", error.getMessage()));
+    }
+
+    private Mono<String> createIfMissing(String bucket) {
+        return storageBackend.bucketExists(bucket)
+                .flatMap(exists -> exists
+                        ? Mono.just(bucket)
+                        : storageBackend.makeBucket(bucket)
+                            .onErrorResume(BucketRegistry::isAlreadyOwned, e -> Mono.empty())
+                            .thenReturn(bucket));
+    }
+
+    // Another replica may win the create race between our bucketExists and makeBucket
+    private static boolean isAlreadyOwned(Throwable error) {
+        return error instanceof ErrorResponseException e
+                && ("BucketAlreadyOwnedByYou".equals(e.errorResponse().code())
+                    || "BucketAlreadyExists".equals(e.errorResponse().code()));
+    }
+}
@@ -0,0 +1,145 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.cache.BoundedCache;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of video metadata by id. Finished uploads barely change, so they
+ * are kept for the full TTL; unknown ids and uploads still pending are only kept for
+ * the short TTL, so a new upload or a status change recorded by another replica shows
+ * up soon. Concurrent lookups of the same id share one query.
+ *
+ * <p>{@link MetadataWriter} invalidates every id it writes. With the Kafka channel
+ * enabled, invalidations are also broadcast so the other replicas drop their copy.
+ */
+@Slf4j
+@Component
+public class MetadataCache {
+    // Rough per-document overhead on top of its strings, for the weight bound
+    private static final long ENTRY_OVERHEAD_BYTES = 256;
+
+    private final VideoMetadataRepository metadataRepository;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Duration shortTtl;
+    private final BoundedCache<String, Optional<VideoMetadata>> cache;
+    private final ConcurrentMap<String, Mono<Optional<VideoMetadata>>> inFlight = new ConcurrentHashMap<>();
+    // Bumped on every invalidation; a load that overlapped one does not cache its result
+    private final AtomicLong invalidations = new AtomicLong();
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String invalidationTopic;
+
+    @Autowired
+    public MetadataCache(VideoMetadataRepository metadataRepository,
+                         MeterRegistry meterRegistry,
+                         ObjectProvider<KafkaTemplate<String, String>> kafkaTemplate,
+                         @Value("${storage.metadata-cache.enabled:true}") boolean enabled,
+                         @Value("${storage.metadata-cache.max-size:64MB}") DataSize maxSize,
+                         @Value("${storage.metadata-cache.ttl:10m}") Duration ttl,
+                         @Value("${storage.metadata-cache.short-ttl:5s}") Duration shortTtl,
+                         @Value("${storage.metadata-cache.invalidation.kafka.enabled:false}") boolean broadcast,
+                         @Value("${storage.metadata-cache.invalidation.kafka.topic:video-metadata-invalidations}") String invalidationTopic) {
+        this(metadataRepository, meterRegistry, enabled, maxSize, ttl, shortTtl, Clock.systemUTC(),
+                broadcast ? kafkaTemplate.getIfAvailable() : null, invalidationTopic);
+    }
+
+    MetadataCache(VideoMetadataRepository metadataRepository, MeterRegistry meterRegistry, boolean enabled, DataSize maxSize,
+                  Duration ttl, Duration shortTtl, Clock clock, KafkaTemplate<String, String> kafkaTemplate, String invalidationTopic) {
+        this.metadataRepository = metadataRepository;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.shortTtl = shortTtl;
+        this.cache = new BoundedCache<>("video.metadata", maxSize.toBytes(), MetadataCache::weigh, clock, meterRegistry);
+        this.kafkaTemplate = kafkaTemplate;
+        this.invalidationTopic = invalidationTopic;
+    }
+
+    public Mono<VideoMetadata> findById(String videoId) {
+        if (!enabled) {
+            return metadataRepository.findById(videoId);
+        }
+        Optional<VideoMetadata> cached = cache.getIfPresent(videoId);
+        if (cached != null) {
+            return Mono.justOrEmpty(cached);
+        }
+        Mono<Optional<VideoMetadata>> load = inFlight.computeIfAbsent(videoId, this::load);
+        return load
+                .doFinally(signal -> inFlight.remove(videoId, load))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * Drops the id here and, with the Kafka channel enabled, on every other replica.
+     */
+    public void invalidate(String videoId) {
+        invalidateLocally(videoId);
+        if (kafkaTemplate != null) {
+            kafkaTemplate.send(invalidationTopic, videoId, videoId)
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            log.warn("Could not broadcast metadata invalidation of {}: {}", videoId, e.getMessage());
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Drops the id on this instance only, for invalidations received from other replicas.
+     */
+    public void invalidateLocally(String videoId) {
+        invalidations.incrementAndGet();
+        inFlight.remove(videoId);
+        cache.invalidate(videoId);
+    }
+
+    private Mono<Optional<VideoMetadata>> load(String videoId) {
+        long generation = invalidations.get();
+        return metadataRepository.findById(videoId)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .doOnNext(found -> {
+                    if (invalidations.get() == generation) {
+                        cache.put(videoId, found, found.filter(MetadataCache::settled).isPresent() ? ttl : shortTtl);
+                    }
+                })
+                .cache();
+    }
+
+    private static boolean settled(VideoMetadata metadata) {
+        return metadata.getUploadStatus() != UploadStatus.PENDING;
+    }
+
+    private static long weigh(String videoId, Optional<VideoMetadata> value) {
+        long weight = ENTRY_OVERHEAD_BYTES + 2L * videoId.length();
+        if (value.isPresent()) {
+            VideoMetadata metadata = value.get();
+            weight += 2L * (length(metadata.getCompetitionId()) + length(metadata.getUploaderId())
+                    + length(metadata.getOriginalFilename()) + length(metadata.getStoredFilename())
+                    + length(metadata.getBucket()) + length(metadata.getObjectLayout())
+                    + length(metadata.getContentType()) + length(metadata.getMultipartUploadId()) + length(metadata.getEtag()));
+        }
+        return weight;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,262 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.event.OutboxEvent;
+import com.gbai.storage_ms.event.VideoEvent;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoEventRef;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.OutboxEventRepository;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single path for metadata writes. Writes are queued in a bounded buffer and the
+ * returned publisher completes once the write is acknowledged by Mongo, so callers
+ * observe failures and are back-pressured instead of firing and forgetting.
+ *
+ * <p>In {@code direct} mode queued writes run with bounded concurrency. In
+ * {@code write-behind} mode they are coalesced into periodic unordered bulk writes;
+ * callers then wait for the flush of the batch they joined.
+ *
+ * <p>Writes may carry {@link VideoEvent}s, which are appended to the outbox in the same
+ * flow as the metadata change (inside a Mongo transaction when one is configured) and
+ * relayed to Kafka in the background.
+ *
+ * <p>Every written id is invalidated in the {@link MetadataCache} once its write
+ * finishes, whatever the outcome. Completed uploads and deletions of completed videos
+ * are reported to the {@link StorageStatistics}.
+ */
+@Slf4j
+@Component
+public class MetadataWriter {
+    private final VideoMetadataRepository metadataRepository;
+    private final OutboxEventRepository outboxRepository;
+    private final MetadataCache metadataCache;
+    private final StorageStatistics statistics;
+    private final TransactionalOperator transactions;
+    private final boolean writeBehind;
+    private final int maxConcurrency;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration timeout;
+    private final Sinks.Many<PendingWrite> queue;
+    private Disposable worker;
+
+    public MetadataWriter(VideoMetadataRepository metadataRepository,
+                          OutboxEventRepository outboxRepository,
+                          MetadataCache metadataCache,
+                          StorageStatistics statistics,
+                          Optional<TransactionalOperator> transactions,
+                          @Value("${storage.metadata.mode:direct}") String mode,
+                          @Value("${storage.metadata.max-concurrency:64}") int maxConcurrency,
+                          @Value("${storage.metadata.queue-capacity:8192}") int queueCapacity,
+                          @Value("${storage.metadata.timeout:5s}") Duration timeout,
+                          @Value("${storage.metadata.write-behind.batch-size:500}") int batchSize,
+                          @Value("${storage.metadata.write-behind.flush-interval:100ms}") Duration flushInterval) {
+        if (!"direct".equals(mode) && !"write-behind".equals(mode)) {
+            throw new IllegalStateException("Unknown storage.metadata.mode: " + mode);
+        }
+        this.metadataRepository = metadataRepository;
+        this.outboxRepository = outboxRepository;
+        this.metadataCache = metadataCache;
+        this.statistics = statistics;
+        this.transactions = transactions.orElse(null);
+        this.writeBehind = "write-behind".equals(mode);
+        this.maxConcurrency = maxConcurrency;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.timeout = timeout;
+        this.queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingWrite>get(queueCapacity).get());
+    }
+
+    @PostConstruct
+    public void start() {
+        Flux<PendingWrite> writes = queue.asFlux();
+        worker = writeBehind
+            ? writes.bufferTimeout(batchSize, flushInterval, true).concatMap(this::flush).subscribe()
+            : writes.flatMap(this::writeOne, maxConcurrency).subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        queue.tryEmitComplete();
+        if (worker != null) {
+            worker.dispose();
+        }
+    }
+
+    public Mono<VideoMetadata> insert(VideoMetadata metadata) {
+        return insert(metadata, null);
+    }
+
+    /**
+     * Queues the insert; a document inserted already completed, which is how reused
+     * uploads are recorded, is counted in the statistics once written.
+     */
+    public Mono<VideoMetadata> insert(VideoMetadata metadata, VideoEvent event) {
+        return enqueue(new PendingWrite(metadata, null, event))
+            .then(Mono.defer(() -> metadata.getUploadStatus() == UploadStatus.COMPLETE ? statistics.uploaded(metadata) : Mono.<Void>empty()))
+            .thenReturn(metadata);
+    }
+
+    public Mono<Void> delete(String videoId) {
+        return delete(videoId, null);
+    }
+
+    public Mono<Void> delete(String videoId, VideoEvent event) {
+        return enqueue(new PendingWrite(null, videoId, event));
+    }
+
+    /**
+     * Like {@link #delete(String, VideoEvent)}, and takes the video out of the storage
+     * statistics if this call deleted it. Runs directly like {@link #deleteVideos}.
+     */
+    public Mono<Void> delete(VideoEventRef video, VideoEvent event) {
+        return deleteVideos(List.of(video), event == null ? List.of() : List.of(event)).then();
+    }
+
+    /**
+     * Deletes an already batched set of ids directly with one deleteMany.
+     */
+    public Mono<Void> deleteAll(Collection<String> videoIds, Collection<VideoEvent> events) {
+        return invalidating(withEvents(metadataRepository.deleteAllById(videoIds), events).timeout(timeout), videoIds);
+    }
+
+    /**
+     * Like {@link #deleteAll}, and takes the videos out of the storage statistics in the
+     * same flow. Only the documents this call actually removed are counted, so a video
+     * deleted twice concurrently is subtracted once; they are also what it emits.
+     */
+    public Mono<List<VideoMetadata>> deleteVideos(Collection<? extends VideoEventRef> videos, Collection<VideoEvent> events) {
+        List<String> videoIds = videos.stream().map(VideoEventRef::getId).toList();
+        return Mono.defer(() -> {
+            AtomicReference<List<VideoMetadata>> removed = new AtomicReference<>(List.of());
+            Mono<Void> delete = metadataRepository.removeAll(videoIds).collectList()
+                .doOnNext(removed::set)
+                .flatMap(statistics::removed);
+            return invalidating(withEvents(delete, events).timeout(timeout), videoIds)
+                .then(Mono.fromSupplier(removed::get));
+        });
+    }
+
+    /**
+     * Writes an already batched set of documents directly with one insertMany.
+     */
+    public Mono<Void> insertAll(Collection<VideoMetadata> videos, Collection<VideoEvent> events) {
+        return invalidating(withEvents(metadataRepository.insertAll(videos).then(), events).timeout(timeout),
+            videos.stream().map(VideoMetadata::getId).toList());
+    }
+
+    /**
+     * Records an arrived upload, see {@link VideoMetadataRepository#recordUpload}. The
+     * event is only appended, and a completion only counted in the statistics, when the
+     * document actually changed.
+     */
+    public Mono<VideoMetadata> recordUpload(String videoId, String storedFilename, UploadStatus status, long actualSize,
+                                            String etag, VideoEvent event) {
+        Mono<VideoMetadata> update = metadataRepository.recordUpload(videoId, storedFilename, status, actualSize, etag, Instant.now())
+            .flatMap(updated -> (updated.getUploadStatus() == UploadStatus.COMPLETE ? statistics.uploaded(updated) : Mono.<Void>empty())
+                .thenReturn(updated))
+            .flatMap(updated -> event == null
+                ? Mono.just(updated)
+                : outboxRepository.insert(OutboxEvent.of(event)).thenReturn(updated));
+        return invalidating((transactions == null ? update : transactions.transactional(update)).timeout(timeout), List.of(videoId));
+    }
+
+    private Mono<Void> enqueue(PendingWrite write) {
+        return Mono.defer(() -> {
+            Sinks.EmitResult result;
+            while ((result = queue.tryEmitNext(write)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+                Thread.onSpinWait();
+            }
+            if (result.isFailure()) {
+                return Mono.error(new RejectedExecutionException("Metadata write queue is full (" + result + ")"));
+            }
+            return write.done().asMono();
+        }).timeout(timeout);
+    }
+
+    private Mono<Void> writeOne(PendingWrite write) {
+        Mono<?> operation = write.metadata() != null
+            ? metadataRepository.save(write.metadata())
+            : metadataRepository.deleteById(write.deleteId());
+        return invalidating(withEvents(operation, write.events()).timeout(timeout), List.of(write.id()))
+            .then(Mono.fromRunnable(() -> write.done().tryEmitEmpty()))
+            .onErrorResume(e -> {
+                write.done().tryEmitError(e);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        // Later operations on the same id win: an insert followed by a delete only deletes
+        Map<String, VideoMetadata> inserts = new LinkedHashMap<>();
+        Set<String> deletes = new LinkedHashSet<>();
+        List<VideoEvent> events = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            events.addAll(write.events());
+            if (write.metadata() != null) {
+                inserts.put(write.metadata().getId(), write.metadata());
+                deletes.remove(write.metadata().getId());
+            } else {
+                inserts.remove(write.deleteId());
+                deletes.add(write.deleteId());
+            }
+        }
+        return invalidating(withEvents(metadataRepository.bulkWrite(inserts.values(), deletes), events).timeout(timeout),
+                batch.stream().map(PendingWrite::id).distinct().toList())
+            .doOnSuccess(v -> batch.forEach(write -> write.done().tryEmitEmpty()))
+            .onErrorResume(e -> {
+                log.error("Write-behind flush of {} metadata operations failed", batch.size(), e);
+                batch.forEach(write -> write.done().tryEmitError(e));
+                return Mono.empty();
+            });
+    }
+
+    private <T> Mono<T> invalidating(Mono<T> write, Collection<String> videoIds) {
+        // Before the outcome reaches the caller, so its next read already misses
+        Runnable invalidate = () -> videoIds.forEach(metadataCache::invalidate);
+        return write.doOnTerminate(invalidate).doOnCancel(invalidate);
+    }
+
+    private Mono<Void> withEvents(Mono<?> write, Collection<VideoEvent> events) {
+        Mono<Void> combined = events.isEmpty()
+            ? write.then()
+            : write.then(outboxRepository.insert(events.stream().map(OutboxEvent::of).toList()).then());
+        return transactions == null ? combined : transactions.transactional(combined);
+    }
+
+    private record PendingWrite(VideoMetadata metadata, String deleteId, List<VideoEvent> events, Sinks.One<Void> done) {
+        PendingWrite(VideoMetadata metadata, String deleteId, VideoEvent event) {
+            this(metadata, deleteId, event == null ? List.of() : List.of(event), Sinks.one());
+        }
+
+        String id() {
+            return metadata != null ? metadata.getId() : deleteId;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.event.VideoEvent;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.limit.Priority;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.ReconcileCheckpointRepository;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import com.gbai.storage_ms.storage.MultipartStorage;
+import com.gbai.storage_ms.storage.StorageBackend;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Background sweeper that brings metadata and buckets back in line. Each pass walks the
+ * buckets that hold videos, competition buckets and the shared bucket alike, in name
+ * order, merges every bucket listing with the bucket's metadata (see
+ * {@link BucketListingJoin}) and:
+ * <ul>
+ *     <li>expires pending uploads whose URL ran out without an object arriving,</li>
+ *     <li>drops metadata whose object is gone,</li>
+ *     <li>records uploads whose notification was missed,</li>
+ *     <li>reports, or in {@code repair} mode deletes, objects without metadata.</li>
+ * </ul>
+ * Work is done in batches paced to {@code storage.reconcile.rate} entries per second,
+ * and the position after each batch is checkpointed so a pass interrupted by a
+ * restart resumes instead of starting over. A lease on the checkpoint keeps a single
+ * instance reconciling at a time. In {@code report} mode nothing is changed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class OrphanReconciler {
+    static final String CHECKPOINT_ID = "orphan-reconciler";
+
+    private final StorageBackend storageBackend;
+    private final VideoMetadataRepository metadataRepository;
+    private final MetadataWriter metadataWriter;
+    private final UploadTracker uploadTracker;
+    private final MultipartStorage multipartStorage;
+    private final PresignedUrlCache presignedUrlCache;
+    private final ObjectLayouts objectLayouts;
+    private final ReconcileCheckpointRepository checkpointRepository;
+    private final Clock clock;
+    private final boolean repair;
+    private final Duration interval;
+    private final int batchSize;
+    private final Duration batchPace;
+    private final Duration pendingTtl;
+    private final Duration multipartTtl;
+    private final Duration strayGrace;
+    private final Duration lease;
+    private final String owner = UUID.randomUUID().toString();
+    private final MeterRegistry meterRegistry;
+    private final Timer passTimer;
+    private Disposable loop;
+
+    @Autowired
+    public OrphanReconciler(StorageBackend storageBackend,
+                            VideoMetadataRepository metadataRepository,
+                            MetadataWriter metadataWriter,
+                            UploadTracker uploadTracker,
+                            MultipartStorage multipartStorage,
+                            PresignedUrlCache presignedUrlCache,
+                            ObjectLayouts objectLayouts,
+                            ReconcileCheckpointRepository checkpointRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${storage.reconcile.mode:report}") String mode,
+                            @Value("${storage.reconcile.interval:6h}") Duration interval,
+                            @Value("${storage.reconcile.batch-size:500}") int batchSize,
+                            @Value("${storage.reconcile.rate:500}") int ratePerSecond,
+                            @Value("${minio.default-expiry:3600}") int defaultExpiry,
+                            @Value("${storage.reconcile.grace:1h}") Duration grace,
+                            @Value("${storage.reconcile.multipart-ttl:7d}") Duration multipartTtl) {
+        this(storageBackend, metadataRepository, metadataWriter, uploadTracker, multipartStorage, presignedUrlCache,
+                objectLayouts, checkpointRepository, meterRegistry, mode, interval, batchSize, ratePerSecond,
+                Duration.ofSeconds(defaultExpiry).plus(grace), multipartTtl, grace, Clock.systemUTC());
+    }
+
+    OrphanReconciler(StorageBackend storageBackend, VideoMetadataRepository metadataRepository, MetadataWriter metadataWriter,
+                     UploadTracker uploadTracker, MultipartStorage multipartStorage, PresignedUrlCache presignedUrlCache,
+                     ObjectLayouts objectLayouts, ReconcileCheckpointRepository checkpointRepository, MeterRegistry meterRegistry,
+                     String mode, Duration interval, int batchSize, int ratePerSecond, Duration pendingTtl, Duration multipartTtl,
+                     Duration strayGrace, Clock clock) {
+        if (!"report".equals(mode) && !"repair".equals(mode)) {
+            throw new IllegalStateException("Unknown storage.reconcile.mode: " + mode);
+        }
+        if (batchSize < 1 || batchSize > StorageService.DELETE_CHUNK_SIZE) {
+            throw new IllegalStateException("storage.reconcile.batch-size must be between 1 and " + StorageService.DELETE_CHUNK_SIZE);
+        }
+        this.storageBackend = storageBackend;
+        this.metadataRepository = metadataRepository;
+        this.metadataWriter = metadataWriter;
+        this.uploadTracker = uploadTracker;
+        this.multipartStorage = multipartStorage;
+        this.presignedUrlCache = presignedUrlCache;
+        this.objectLayouts = objectLayouts;
+        this.checkpointRepository = checkpointRepository;
+        this.meterRegistry = meterRegistry;
+        this.repair = "repair".equals(mode);
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.batchPace = Duration.ofMillis(Math.max(1, 1000L * batchSize / ratePerSecond));
+        this.pendingTtl = pendingTtl;
+        this.multipartTtl = multipartTtl;
+        this.strayGrace = strayGrace;
+        // Long enough to cover a batch and its checkpoint with plenty of margin
+        this.lease = batchPace.multipliedBy(4).plus(Duration.ofMinutes(5));
+        this.clock = clock;
+        this.passTimer = Timer.builder("reconcile.pass").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        loop = Flux.interval(Duration.ofMinutes(1), interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> runPass()
+                        // Yields dependency capacity to requests
+                        .contextWrite(Priority.BULK::into)
+                        .onErrorResume(e -> {
+                            log.error("Reconciliation pass failed", e);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (loop != null) {
+            loop.dispose();
+        }
+    }
+
+    /**
+     * Runs or resumes one pass; completes without doing anything while another instance
+     * holds the lease.
+     */
+    Mono<Void> runPass() {
+        Instant now = clock.instant();
+        return checkpointRepository.acquire(CHECKPOINT_ID, owner, now, now.plus(lease))
+                .flatMap(checkpoint -> {
+                    Instant passStartedAt = checkpoint.getBucket() != null ? checkpoint.getPassStartedAt() : now;
+                    String resumeBucket = checkpoint.getBucket();
+                    if (resumeBucket != null) {
+                        log.info("Resuming reconciliation in {} after {}", resumeBucket, checkpoint.getAfterKey());
+                    }
+                    long started = System.nanoTime();
+                    return storageBackend.listBuckets()
+                            .filter(objectLayouts::holdsVideos)
+                            .filter(bucket -> resumeBucket == null || bucket.compareTo(resumeBucket) >= 0)
+                            .sort()
+                            .concatMap(bucket -> reconcileBucket(bucket,
+                                    bucket.equals(resumeBucket) ? checkpoint.getAfterKey() : null, passStartedAt))
+                            .then(Mono.defer(() -> checkpointRepository.advance(CHECKPOINT_ID, owner, null, null, null,
+                                    clock.instant(), clock.instant())))
+                            .doOnSuccess(done -> {
+                                passTimer.record(Duration.ofNanos(System.nanoTime() - started));
+                                log.info("Reconciliation pass started at {} finished", passStartedAt);
+                            })
+                            .then(checkpointRepository.release(CHECKPOINT_ID, owner));
+                });
+    }
+
+    private Mono<Void> reconcileBucket(String bucket, String afterKey, Instant passStartedAt) {
+        return BucketListingJoin.join(
+                        metadataRepository.findBucketObjectsAfter(bucket, objectLayouts.competitionOfBucket(bucket), afterKey),
+                        storageBackend.listObjects(bucket, afterKey))
+                // Batches end between object names, as the checkpoint is the last name done
+                .bufferUntilChanged(BucketListingJoin.Entry::name)
+                .buffer(batchSize)
+                .map(names -> names.stream().flatMap(List::stream).toList())
+                .delayElements(batchPace)
+                .concatMap(batch -> reconcileBatch(bucket, batch)
+                        .then(Mono.defer(() -> {
+                            Instant now = clock.instant();
+                            return checkpointRepository.advance(CHECKPOINT_ID, owner, bucket, batch.get(batch.size() - 1).name(),
+                                    passStartedAt, now, now.plus(lease));
+                        }))
+                        // Stop instead of racing another instance that took over an expired lease
+                        .switchIfEmpty(Mono.error(new IllegalStateException("Reconciliation lease lost"))), 1)
+                .then();
+    }
+
+    private Mono<Void> reconcileBatch(String bucket, List<BucketListingJoin.Entry> batch) {
+        Instant now = clock.instant();
+        List<String> strays = new ArrayList<>();
+        List<VideoMetadata> expired = new ArrayList<>();
+        List<VideoMetadata> lost = new ArrayList<>();
+        List<VideoMetadata> abandonedMultipart = new ArrayList<>();
+        List<BucketListingJoin.Entry> unconfirmed = new ArrayList<>();
+        for (BucketListingJoin.Entry entry : batch) {
+            VideoMetadata video = entry.video();
+            if (video == null) {
+                Instant modified = entry.object().lastModified();
+                if (modified == null || modified.plus(strayGrace).isBefore(now)) {
+                    strays.add(entry.name());
+                }
+            } else if (entry.object() != null) {
+                if (video.getUploadStatus() == UploadStatus.PENDING) {
+                    unconfirmed.add(entry);
+                }
+            } else if (video.getMultipartUploadId() != null) {
+                if (isOlderThan(video, multipartTtl, now)) {
+                    abandonedMultipart.add(video);
+                }
+            } else if (video.getUploadStatus() == UploadStatus.COMPLETE) {
+                // A recent completion may simply not have been in the listing yet
+                if (video.getUploadCompletedAt() != null && video.getUploadCompletedAt().plus(strayGrace).isBefore(now)) {
+                    lost.add(video);
+                }
+            } else if (isOlderThan(video, pendingTtl, now)) {
+                expired.add(video);
+            }
+        }
+        count("stray_object", strays.size());
+        count("expired_upload", expired.size());
+        count("lost_object", lost.size());
+        count("abandoned_multipart", abandonedMultipart.size());
+        count("unconfirmed_upload", unconfirmed.size());
+        if (!strays.isEmpty()) {
+            log.warn("{} has {} objects without metadata{}", bucket, strays.size(), repair ? ", deleting them" : ": " + strays);
+        }
+        if (!repair) {
+            if (expired.size() + lost.size() + abandonedMultipart.size() + unconfirmed.size() > 0) {
+                log.info("{}: {} expired uploads, {} lost objects, {} abandoned multipart uploads, {} unconfirmed uploads (report only)",
+                        bucket, expired.size(), lost.size(), abandonedMultipart.size(), unconfirmed.size());
+            }
+            return Mono.empty();
+        }
+        return Mono.when(
+                removeStrays(bucket, strays),
+                abortMultipartUploads(bucket, abandonedMultipart),
+                Flux.fromIterable(unconfirmed)
+                        .concatMap(entry -> uploadTracker.recordUpload(bucket, entry.name(), entry.object().size(), entry.object().etag()))
+                        .then())
+                .then(Mono.defer(() -> deleteMetadata(expired, lost, abandonedMultipart)));
+    }
+
+    private Mono<Void> removeStrays(String bucket, List<String> strays) {
+        if (strays.isEmpty()) {
+            return Mono.empty();
+        }
+        return storageBackend.removeObjects(bucket, strays)
+                .doOnNext(failed -> {
+                    if (!failed.isEmpty()) {
+                        log.warn("Could not remove {} stray objects from {}", failed.size(), bucket);
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Void> abortMultipartUploads(String bucket, List<VideoMetadata> videos) {
+        return Flux.fromIterable(videos)
+                .concatMap(video -> multipartStorage.abortMultipartUpload(bucket, video.getStoredFilename(), video.getMultipartUploadId())
+                        .onErrorResume(e -> {
+                            // Usually already gone: MinIO expires stale multipart uploads on its own
+                            log.debug("Aborting multipart upload of {} failed: {}", video.getId(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private Mono<Void> deleteMetadata(List<VideoMetadata> expired, List<VideoMetadata> lost, List<VideoMetadata> abandonedMultipart) {
+        List<VideoMetadata> videos = new ArrayList<>();
+        List<VideoEvent> events = new ArrayList<>();
+        videos.addAll(expired);
+        videos.addAll(abandonedMultipart);
+        // Only videos that were announced as uploaded are announced as deleted
+        lost.forEach(video -> {
+            videos.add(video);
+            events.add(VideoEvent.of(VideoEvent.VIDEO_DELETED, video));
+        });
+        if (videos.isEmpty()) {
+            return Mono.empty();
+        }
+        videos.forEach(video -> presignedUrlCache.invalidate(video.getId()));
+        return metadataWriter.deleteVideos(videos, events).then();
+    }
+
+    private static boolean isOlderThan(VideoMetadata video, Duration age, Instant now) {
+        return video.getUploadTimestamp() != null && video.getUploadTimestamp().plus(age).isBefore(now);
+    }
+
+    private void count(String outcome, int amount) {
+        if (amount > 0) {
+            Counter.builder("reconcile.entries")
+                    .tag("outcome", outcome)
+                    .tag("mode", repair ? "repair" : "report")
+                    .register(meterRegistry)
+                    .increment(amount);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.cache.BoundedCache;
+import com.gbai.storage_ms.model.PresignedUrlResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Reuses presigned GET URLs per video while enough of their lifetime remains.
+ * Entries are only reused until the end of the window they were issued in, so every
+ * viewer in the same window gets the identical, browser/CDN cacheable URL and a
+ * refreshed URL is issued on a predictable boundary.
+ */
+@Component
+public class PresignedUrlCache {
+    private final boolean enabled;
+    private final long windowMillis;
+    private final long minRemainingMillis;
+    private final Clock clock;
+    private final BoundedCache<String, CachedUrl> cache;
+
+    @Autowired
+    public PresignedUrlCache(MeterRegistry meterRegistry,
+                             @Value("${storage.presign-cache.enabled:true}") boolean enabled,
+                             @Value("${storage.presign-cache.max-entries:50000}") long maxEntries,
+                             @Value("${storage.presign-cache.window:15m}") Duration window,
+                             @Value("${storage.presign-cache.min-remaining:30m}") Duration minRemaining,
+                             @Value("${minio.default-expiry:3600}") int defaultExpiry) {
+        this(meterRegistry, enabled, maxEntries, window, minRemaining, defaultExpiry, Clock.systemUTC());
+    }
+
+    PresignedUrlCache(MeterRegistry meterRegistry, boolean enabled, long maxEntries, Duration window,
+                      Duration minRemaining, int defaultExpiry, Clock clock) {
+        if (window.plus(minRemaining).compareTo(Duration.ofSeconds(defaultExpiry)) > 0) {
+            throw new IllegalStateException("storage.presign-cache.window + min-remaining must not exceed minio.default-expiry");
+        }
+        this.enabled = enabled;
+        this.windowMillis = window.toMillis();
+        this.minRemainingMillis = minRemaining.toMillis();
+        this.clock = clock;
+        this.cache = new BoundedCache<>("presigned.download-urls", maxEntries, clock, meterRegistry);
+    }
+
+    /**
+     * Signing time for a new URL: the start of the current window, so presigners that
+     * can choose their timestamp produce byte-identical URLs for the whole window, on
+     * every replica.
+     */
+    public Instant signingTime() {
+        long now = clock.millis();
+        return enabled ? Instant.ofEpochMilli(now - now % windowMillis) : Instant.ofEpochMilli(now);
+    }
+
+    /**
+     * Returns the cached URL with its expiry reduced to the lifetime actually left, or
+     * {@code null} when a fresh URL has to be signed.
+     */
+    public PresignedUrlResponse get(String videoId) {
+        if (!enabled) {
+            return null;
+        }
+        CachedUrl cached = cache.getIfPresent(videoId);
+        return cached == null ? null : withRemainingLifetime(cached);
+    }
+
+    /**
+     * Caches a URL signed at {@code issuedAt} and returns it with the lifetime it has left.
+     */
+    public PresignedUrlResponse put(String videoId, PresignedUrlResponse response, Instant issuedAt) {
+        if (!enabled) {
+            return response;
+        }
+        long issued = issuedAt.toEpochMilli();
+        long expiresAt = issued + response.getExpiry() * 1000;
+        long windowEnd = (issued / windowMillis + 1) * windowMillis;
+        long reuseUntil = Math.min(windowEnd, expiresAt - minRemainingMillis);
+        CachedUrl cached = new CachedUrl(response, expiresAt);
+        cache.put(videoId, cached, Duration.ofMillis(reuseUntil - clock.millis()));
+        return withRemainingLifetime(cached);
+    }
+
+    public void invalidate(String videoId) {
+        cache.invalidate(videoId);
+    }
+
+    private PresignedUrlResponse withRemainingLifetime(CachedUrl cached) {
+        PresignedUrlResponse response = cached.response();
+        long remainingSeconds = (cached.expiresAtMillis() - clock.millis()) / 1000;
+        return new PresignedUrlResponse(response.getUrl(), response.getFileId(), response.getBucket(), response.getMethod(), remainingSeconds);
+    }
+
+    private record CachedUrl(PresignedUrlResponse response, long expiresAtMillis) {
+    }
+}
@@ -1,136 +1,734 @@
 package com.gbai.storage_ms.service;
 
+import com.gbai.storage_ms.event.VideoEvent;
+import com.gbai.storage_ms.layout.ObjectLayout;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.BatchUploadItem;
+import com.gbai.storage_ms.model.DeletionSummary;
+import com.gbai.storage_ms.model.MultipartPart;
+import com.gbai.storage_ms.model.MultipartUploadResponse;
 import com.gbai.storage_ms.model.PresignedUrlResponse;
+import com.gbai.storage_ms.model.UploadFileRequest;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.UploadVerificationReport;
+import com.gbai.storage_ms.model.VideoEventRef;
 import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.model.VideoObjectRef;
+import com.gbai.storage_ms.model.VideoPage;
 import com.gbai.storage_ms.repository.VideoMetadataRepository;
-import io.minio.*;
-import io.minio.errors.*;
+import com.gbai.storage_ms.storage.MultipartStorage;
+import com.gbai.storage_ms.storage.StorageBackend;
+import com.gbai.storage_ms.storage.StoredObject;
+import com.gbai.storage_ms.storage.UrlPresigner;
+import io.minio.errors.ErrorResponseException;
 import io.minio.http.Method;
+import io.minio.messages.Part;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class StorageService {
-    private final MinioClient minioClient;
+    // S3 multi-object delete accepts at most 1000 keys per request
+    static final int DELETE_CHUNK_SIZE = 1000;
+    // S3 multipart limits: parts of 5 MiB to 5 GiB (the last may be smaller), at most 10000 parts, 5 TiB per object
+    static final long MIN_PART_SIZE = DataSize.ofMegabytes(5).toBytes();
+    static final long MAX_PART_SIZE = DataSize.ofGigabytes(5).toBytes();
+    static final int MAX_PARTS = 10_000;
+    static final long MAX_MULTIPART_OBJECT_SIZE = DataSize.ofTerabytes(5).toBytes();
+
+    private final StorageBackend storageBackend;
+    private final UrlPresigner urlPresigner;
+    private final BucketRegistry bucketRegistry;
+    private final ObjectLayouts objectLayouts;
+    private final PresignedUrlCache presignedUrlCache;
     private final VideoMetadataRepository metadataRepository;
+    private final MetadataCache metadataCache;
+    private final MetadataWriter metadataWriter;
+    private final MultipartStorage multipartStorage;
+    private final UploadTracker uploadTracker;
+    private final UploadDeduplicator uploadDeduplicator;
 
     @Value("${minio.default-expiry:3600}")
     private int defaultExpiry;
+    @Value("${storage.batch.max-files:100}")
+    private int maxBatchFiles;
+    @Value("${storage.batch.sign-concurrency:16}")
+    private int batchSignConcurrency;
+    @Value("${storage.cascade.concurrency:4}")
+    private int cascadeConcurrency;
+    @Value("${storage.listing.sign-concurrency:16}")
+    private int listSignConcurrency;
+    @Value("${storage.listing.max-page-size:500}")
+    private int maxPageSize;
+    @Value("${storage.multipart.part-size:64MB}")
+    private DataSize preferredPartSize;
+    @Value("${storage.upload.status-recheck:5s}")
+    private Duration statusRecheck;
+    @Value("${storage.upload.max-wait:60s}")
+    private Duration maxUploadWait;
+    @Value("${storage.verify.max-ids:1000}")
+    private int maxVerifyIds;
 
+    /**
+     * The bucket new uploads of the competition go to under the current layout.
+     */
     public Mono<String> getOrCreateBucket(String competitionId) {
-        String bucket = "competition-" + competitionId;
-        return Mono.fromCallable(() -> {
-            boolean exists = minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build());
-            if (!exists) {
-                minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
-            }
-            return bucket;
-        });
+        return bucketRegistry.ensureBucket(objectLayouts.current().bucket(competitionId));
     }
 
     public Mono<PresignedUrlResponse> generatePresignedUploadUrl(String competitionId, String uploaderId, String originalFilename, String contentType, long fileSize) {
+        return generatePresignedUploadUrl(competitionId, uploaderId, originalFilename, contentType, fileSize, null);
+    }
+
+    /**
+     * Like {@link #generatePresignedUploadUrl(String, String, String, String, long)}; with
+     * deduplication enabled and the file's hex MD5 as {@code contentHash}, a file the
+     * uploader has already stored is not uploaded again but recorded as a completed video
+     * sharing the stored object, and the response carries no URL.
+     */
+    public Mono<PresignedUrlResponse> generatePresignedUploadUrl(String competitionId, String uploaderId, String originalFilename,
+                                                                 String contentType, long fileSize, String contentHash) {
+        if (contentHash == null || !uploadDeduplicator.enabled()) {
+            return presignUpload(competitionId, uploaderId, originalFilename, contentType, fileSize);
+        }
+        return uploadDeduplicator.reuse(competitionId, uploaderId, originalFilename, contentType, fileSize, contentHash)
+            .map(video -> PresignedUrlResponse.deduplicated(video.getId(), video.getBucket()))
+            .switchIfEmpty(Mono.defer(() -> presignUpload(competitionId, uploaderId, originalFilename, contentType, fileSize)));
+    }
+
+    private Mono<PresignedUrlResponse> presignUpload(String competitionId, String uploaderId, String originalFilename, String contentType, long fileSize) {
+        ObjectLayout layout = objectLayouts.current();
+        String fileId = UUID.randomUUID().toString();
+        String storedFilename = layout.objectKey(competitionId, fileId, originalFilename);
+        return getOrCreateBucket(competitionId)
+            .flatMap(bucket -> urlPresigner.presign(Method.PUT, bucket, storedFilename, defaultExpiry, Instant.now())
+                .flatMap(url -> metadataWriter.insert(newMetadata(layout, fileId, competitionId, uploaderId, originalFilename, storedFilename, contentType, fileSize))
+                    .thenReturn(new PresignedUrlResponse(url, fileId, bucket, "PUT", defaultExpiry))));
+    }
+
+    /**
+     * Issues upload URLs for several files of one competition: the bucket is resolved
+     * once and all metadata documents are written with a single insertMany. Each item
+     * carries either its upload URL or the reason it failed.
+     */
+    public Mono<List<BatchUploadItem>> generatePresignedUploadUrls(String competitionId, String uploaderId, List<UploadFileRequest> files) {
+        if (files == null || files.isEmpty() || files.size() > maxBatchFiles) {
+            return Mono.error(new IllegalArgumentException("A batch must contain between 1 and " + maxBatchFiles + " files"));
+        }
+        return getOrCreateBucket(competitionId)
+            .flatMap(bucket -> Flux.range(0, files.size())
+                .flatMapSequential(index -> presignBatchItem(bucket, competitionId, uploaderId, index, files.get(index)), batchSignConcurrency)
+                .collectList())
+            .flatMap(this::persistBatch);
+    }
+
+    private Mono<PendingUpload> presignBatchItem(String bucket, String competitionId, String uploaderId, int index, UploadFileRequest file) {
+        if (file.getOriginalFilename() == null || file.getOriginalFilename().isBlank() || file.getFileSize() <= 0) {
+            return Mono.just(PendingUpload.failed(index, file, "originalFilename and a positive fileSize are required"));
+        }
+        ObjectLayout layout = objectLayouts.current();
         String fileId = UUID.randomUUID().toString();
-        String storedFilename = fileId + "-" + originalFilename;
+        String storedFilename = layout.objectKey(competitionId, fileId, file.getOriginalFilename());
+        return urlPresigner.presign(Method.PUT, bucket, storedFilename, defaultExpiry, Instant.now())
+            .map(url -> new PendingUpload(index, file,
+                newMetadata(layout, fileId, competitionId, uploaderId, file.getOriginalFilename(), storedFilename, file.getContentType(), file.getFileSize()),
+                new PresignedUrlResponse(url, fileId, bucket, "PUT", defaultExpiry), null))
+            .onErrorResume(e -> Mono.just(PendingUpload.failed(index, file, "Signing failed: " + e.getMessage())));
+    }
+
+    private Mono<List<BatchUploadItem>> persistBatch(List<PendingUpload> pending) {
+        List<VideoMetadata> documents = new ArrayList<>();
+        for (PendingUpload upload : pending) {
+            if (upload.metadata() != null) {
+                documents.add(upload.metadata());
+            }
+        }
+        if (documents.isEmpty()) {
+            return Mono.just(pending.stream().map(PendingUpload::toItem).toList());
+        }
+        return metadataWriter.insertAll(documents, List.of())
+            .then(Mono.fromSupplier(() -> pending.stream().map(PendingUpload::toItem).toList()))
+            .onErrorResume(e -> {
+                // The ordered insertMany may have written some documents before failing or
+                // timing out: retry only the others, one by one, so only real failures are reported
+                log.warn("Batch insert of {} video documents failed, retrying individually: {}", documents.size(), e.getMessage());
+                return metadataRepository.findAllById(documents.stream().map(VideoMetadata::getId).toList())
+                    .map(VideoMetadata::getId)
+                    .collect(Collectors.toSet())
+                    .flatMap(stored -> Flux.fromIterable(pending)
+                        .concatMap(upload -> upload.metadata() == null || stored.contains(upload.metadata().getId())
+                            ? Mono.just(upload.toItem())
+                            : metadataWriter.insert(upload.metadata())
+                                .map(saved -> upload.toItem())
+                                // Ids are fresh UUIDs: a duplicate is the batch's own write landing late
+                                .onErrorResume(DuplicateKeyException.class, err -> Mono.just(upload.toItem()))
+                                .onErrorResume(err -> Mono.just(upload.withError("Persisting metadata failed: " + err.getMessage()).toItem())))
+                        .collectList());
+            });
+    }
+
+    /**
+     * Starts an S3 multipart upload and presigns a PUT for every part, so the client can
+     * upload parts in parallel and retry single parts. The part size grows past
+     * {@code storage.multipart.part-size} only when the file would need more than
+     * 10000 parts.
+     */
+    public Mono<MultipartUploadResponse> initiateMultipartUpload(String competitionId, String uploaderId, String originalFilename,
+                                                                 String contentType, long fileSize) {
+        if (fileSize <= 0 || fileSize > MAX_MULTIPART_OBJECT_SIZE) {
+            return Mono.error(new IllegalArgumentException("fileSize must be between 1 byte and 5 TiB"));
+        }
+        ObjectLayout layout = objectLayouts.current();
+        String fileId = UUID.randomUUID().toString();
+        String storedFilename = layout.objectKey(competitionId, fileId, originalFilename);
+        long partSize = partSize(fileSize, preferredPartSize.toBytes());
         return getOrCreateBucket(competitionId)
-            .flatMap(bucket -> Mono.fromCallable(() -> {
-                String url = minioClient.getPresignedObjectUrl(
-                    GetPresignedObjectUrlArgs.builder()
-                        .method(Method.PUT)
-                        .bucket(bucket)
-                        .object(storedFilename)
-                        .expiry(defaultExpiry)
-                        .build()
-                );
-                VideoMetadata metadata = new VideoMetadata();
-                metadata.setId(fileId);
-                metadata.setCompetitionId(competitionId);
-                metadata.setUploaderId(uploaderId);
-                metadata.setOriginalFilename(originalFilename);
-                metadata.setStoredFilename(storedFilename);
-                metadata.setUploadTimestamp(Instant.now());
-                metadata.setFileSize(fileSize);
-                metadata.setContentType(contentType);
-                metadataRepository.save(metadata).subscribe();
-                return new PresignedUrlResponse(url, fileId, bucket, "PUT", defaultExpiry);
-            }));
+            .flatMap(bucket -> multipartStorage.createMultipartUpload(bucket, storedFilename, contentType)
+                .flatMap(uploadId -> {
+                    VideoMetadata metadata = newMetadata(layout, fileId, competitionId, uploaderId, originalFilename, storedFilename, contentType, fileSize);
+                    metadata.setMultipartUploadId(uploadId);
+                    metadata.setPartSize(partSize);
+                    return presignParts(metadata, bucket, List.of())
+                        .flatMap(response -> metadataWriter.insert(metadata).thenReturn(response))
+                        .onErrorResume(e -> multipartStorage.abortMultipartUpload(bucket, storedFilename, uploadId)
+                            .onErrorResume(abortError -> {
+                                log.warn("Could not abort multipart upload {} of {}: {}", uploadId, storedFilename, abortError.getMessage());
+                                return Mono.empty();
+                            })
+                            .then(Mono.error(e)));
+                }));
     }
+
+    /**
+     * Current state of an unfinished multipart upload: the parts MinIO already holds and
+     * fresh URLs for the ones still missing, which is all a client needs to resume.
+     */
+    public Mono<MultipartUploadResponse> getMultipartUpload(String videoId) {
+        return findMultipartUpload(videoId)
+            .flatMap(metadata -> {
+                String bucket = objectLayouts.bucketOf(metadata);
+                return multipartStorage.listParts(bucket, metadata.getStoredFilename(), metadata.getMultipartUploadId())
+                    .collectList()
+                    .flatMap(uploaded -> presignParts(metadata, bucket, uploaded));
+            });
+    }
+
+    /**
+     * Assembles the object from the parts MinIO reports and marks the video uploaded.
+     * Fails without touching the upload when parts are missing or their sizes do not add
+     * up to the announced file size, so the client can still upload them and retry.
+     */
+    public Mono<VideoMetadata> completeMultipartUpload(String videoId) {
+        return findMultipartUpload(videoId)
+            .flatMap(metadata -> {
+                String bucket = objectLayouts.bucketOf(metadata);
+                String uploadId = metadata.getMultipartUploadId();
+                int partCount = partCount(metadata.getFileSize(), metadata.getPartSize());
+                return multipartStorage.listParts(bucket, metadata.getStoredFilename(), uploadId)
+                    .collectSortedList(Comparator.comparingInt(Part::partNumber))
+                    .flatMap(parts -> {
+                        if (parts.size() != partCount) {
+                            return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                                "Multipart upload of video " + videoId + " has " + parts.size() + " of " + partCount + " parts"));
+                        }
+                        // Checked before completing, as single-part uploads are when they arrive
+                        long size = parts.stream().mapToLong(Part::partSize).sum();
+                        if (size != metadata.getFileSize()) {
+                            return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                                "Multipart upload of video " + videoId + " has " + size + " bytes instead of " + metadata.getFileSize()));
+                        }
+                        List<Part> completed = parts.stream().map(part -> new Part(part.partNumber(), part.etag())).toList();
+                        return multipartStorage.completeMultipartUpload(bucket, metadata.getStoredFilename(), uploadId, completed)
+                            // The object-created notification may have recorded it already
+                            .flatMap(object -> uploadTracker.recordUpload(bucket, metadata.getStoredFilename(), size, object.etag())
+                                .switchIfEmpty(metadataCache.findById(videoId)));
+                    });
+            });
+    }
+
+    /**
+     * Aborts the multipart upload, which frees the parts already stored, and drops the
+     * video's metadata.
+     */
+    public Mono<Void> abortMultipartUpload(String videoId) {
+        return findMultipartUpload(videoId)
+            .flatMap(metadata -> multipartStorage.abortMultipartUpload(objectLayouts.bucketOf(metadata),
+                    metadata.getStoredFilename(), metadata.getMultipartUploadId())
+                .then(Mono.defer(() -> {
+                    presignedUrlCache.invalidate(videoId);
+                    return metadataWriter.delete(videoId);
+                })));
+    }
+
+    private Mono<VideoMetadata> findMultipartUpload(String videoId) {
+        return metadataCache.findById(videoId)
+            .filter(metadata -> metadata.getMultipartUploadId() != null);
+    }
+
+    private Mono<MultipartUploadResponse> presignParts(VideoMetadata metadata, String bucket, List<Part> uploaded) {
+        long fileSize = metadata.getFileSize();
+        long partSize = metadata.getPartSize();
+        int partCount = partCount(fileSize, partSize);
+        Set<Integer> done = new HashSet<>();
+        List<MultipartPart> uploadedParts = new ArrayList<>(uploaded.size());
+        for (Part part : uploaded) {
+            done.add(part.partNumber());
+            uploadedParts.add(new MultipartPart(part.partNumber(), null, part.etag(), part.partSize()));
+        }
+        uploadedParts.sort(Comparator.comparingInt(MultipartPart::getPartNumber));
+        Instant signedAt = Instant.now();
+        return Flux.range(1, partCount)
+            .filter(partNumber -> !done.contains(partNumber))
+            .flatMapSequential(partNumber -> urlPresigner.presign(Method.PUT, bucket, metadata.getStoredFilename(), defaultExpiry, signedAt,
+                    Map.of("partNumber", Integer.toString(partNumber), "uploadId", metadata.getMultipartUploadId()))
+                .map(url -> new MultipartPart(partNumber, url, null,
+                    partNumber < partCount ? partSize : fileSize - partSize * (partCount - 1))), batchSignConcurrency)
+            .collectList()
+            .map(pendingParts -> new MultipartUploadResponse(metadata.getId(), bucket, metadata.getMultipartUploadId(), partSize, partCount,
+                defaultExpiry, uploadedParts, pendingParts));
+    }
+
+    /**
+     * The preferred part size, raised to keep the file within 10000 parts (rounded up to
+     * whole MiB) and clamped to the S3 minimum.
+     */
+    static long partSize(long fileSize, long preferredPartSize) {
+        long mib = DataSize.ofMegabytes(1).toBytes();
+        long minimumForCount = ((fileSize + MAX_PARTS - 1) / MAX_PARTS + mib - 1) / mib * mib;
+        return Math.min(MAX_PART_SIZE, Math.max(MIN_PART_SIZE, Math.max(preferredPartSize, minimumForCount)));
+    }
+
+    static int partCount(long fileSize, long partSize) {
+        return (int) ((fileSize + partSize - 1) / partSize);
+    }
+
 // HACK needs maintenance
     public Mono<PresignedUrlResponse> generatePresignedDownloadUrl(String videoId) {
-        return metadataRepository.findById(videoId)
-            .flatMap(metadata -> Mono.fromCallable(() -> {
-                String url = minioClient.getPresignedObjectUrl(
-                    GetPresignedObjectUrlArgs.builder()
-                        .method(Method.GET)
-                        .bucket("competition-" + metadata.getCompetitionId())
-                        .object(metadata.getStoredFilename())
-                        .expiry(defaultExpiry)
-                        .build()
-                );
-            }));
+        PresignedUrlResponse cached = presignedUrlCache.get(videoId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return metadataCache.findById(videoId)
+            .flatMap(this::presignDownload);
     }
 
+    /**
+     * Signs straight from the streamed documents, without a second lookup per video,
+     * in document order and with bounded signing concurrency. Only the fields needed
+     * for signing are loaded.
+     */
     public Flux<PresignedUrlResponse> listPresignedDownloadUrlsForCompetition(String competitionId) {
-        return metadataRepository.findByCompetitionId(competitionId)
-            .flatMap(metadata -> generatePresignedDownloadUrl(metadata.getId()));
+        return metadataRepository.findRefsByCompetitionId(competitionId)
+            .flatMapSequential(this::presignDownload, listSignConcurrency);
+    }
+
+    public Mono<VideoPage> listPresignedDownloadUrlsPage(String competitionId, String cursor, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            return Mono.error(new IllegalArgumentException("limit must be between 1 and " + maxPageSize));
+        }
+        return Mono.defer(() -> {
+            PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+            return metadataRepository.findCompetitionPage(competitionId,
+                    after == null ? null : after.uploadTimestamp(), after == null ? null : after.id(), limit + 1)
+                .collectList();
+        })
+            .flatMap(videos -> {
+                boolean hasMore = videos.size() > limit;
+                List<VideoMetadata> page = hasMore ? videos.subList(0, limit) : videos;
+                String nextCursor = hasMore ? PageCursor.of(page.get(page.size() - 1)).encode() : null;
+                return Flux.fromIterable(page)
+                    .flatMapSequential(this::presignDownload, listSignConcurrency)
+                    .collectList()
+                    .map(items -> new VideoPage(items, nextCursor));
+            });
+    }
+
+    private Mono<PresignedUrlResponse> presignDownload(VideoObjectRef metadata) {
+        String videoId = metadata.getId();
+        PresignedUrlResponse cached = presignedUrlCache.get(videoId);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        String bucket = objectLayouts.bucketOf(metadata);
+        Instant signedAt = presignedUrlCache.signingTime();
+        return urlPresigner.presign(Method.GET, bucket, metadata.getStoredFilename(), defaultExpiry, signedAt)
+            .map(url -> presignedUrlCache.put(videoId, new PresignedUrlResponse(url, videoId, bucket, "GET", defaultExpiry), signedAt));
     }
 
+    /**
+     * Whether the video's upload has arrived, answered from its metadata. Documents from
+     * before uploads were tracked fall back to checking the object in MinIO.
+     */
     public Mono<Boolean> verifyVideoUpload(String videoId) {
-        return metadataRepository.findById(videoId)
-            .flatMap(metadata -> Mono.fromCallable(() -> {
-                try {
-                    // Check if object exists in MinIO
-                    minioClient.statObject(StatObjectArgs.builder()
-                        .bucket("competition-" + metadata.getCompetitionId())
-                        .object(metadata.getStoredFilename())
-                        .build());
-                    return true; // Object exists
-                } catch (Exception e) {
-                    log.warn("Video {} not found in MinIO: {}", videoId, e.getMessage());
-                    return false; // Object doesn't exist
-                }
-            }))
+        return getUploadStatus(videoId)
+            .map(status -> status == UploadStatus.COMPLETE)
             .defaultIfEmpty(false); // No metadata found
     }
 
-    public Mono<Void> deleteVideo(String videoId) {
-        return metadataRepository.findById(videoId)
-            .flatMap(metadata -> Mono.fromRunnable(() -> {
-                try {
-                    minioClient.removeObject(RemoveObjectArgs.builder()
-                        .bucket("competition-" + metadata.getCompetitionId())
-                        .object(metadata.getStoredFilename())
-                        .build());
-                    metadataRepository.deleteById(videoId).subscribe();
-                } catch (Exception e) {
-                    log.error("Failed to delete video from MinIO", e);
+    /**
+     * Like {@link #verifyVideoUpload} but waits up to {@code maxWait} for a pending upload
+     * to be confirmed.
+     */
+    public Mono<Boolean> awaitVideoUpload(String videoId, Duration maxWait) {
+        return watchUploadStatus(videoId, maxWait)
+            .last(UploadStatus.PENDING)
+            .map(status -> status == UploadStatus.COMPLETE);
+    }
+
+    /**
+     * The current upload status followed by every change until the upload completes or
+     * fails, or {@code maxWait} passes. Notifications handled by this instance arrive
+     * immediately; the metadata is also re-read every {@code storage.upload.status-recheck}
+     * to catch those handled elsewhere. Waits are capped at {@code storage.upload.max-wait}.
+     * Empty when the video does not exist.
+     */
+    public Flux<UploadStatus> watchUploadStatus(String videoId, Duration maxWait) {
+        Mono<UploadStatus> current = getUploadStatus(videoId);
+        return Flux.merge(
+                uploadTracker.updates(videoId).map(VideoMetadata::getUploadStatus),
+                current,
+                Flux.interval(statusRecheck).onBackpressureDrop().concatMap(tick -> current))
+            .distinctUntilChanged()
+            .takeUntil(status -> status != UploadStatus.PENDING)
+            .take(maxWait.compareTo(maxUploadWait) < 0 ? maxWait : maxUploadWait);
+    }
+
+    private Mono<UploadStatus> getUploadStatus(String videoId) {
+        return metadataCache.findById(videoId)
+            .flatMap(metadata -> metadata.getUploadStatus() != null
+                ? Mono.just(metadata.getUploadStatus())
+                : legacyUploadStatus(metadata));
+    }
+
+    private Mono<UploadStatus> legacyUploadStatus(VideoMetadata metadata) {
+        String bucket = objectLayouts.bucketOf(metadata);
+        return storageBackend.statObject(bucket, metadata.getStoredFilename())
+            .thenReturn(UploadStatus.COMPLETE)
+            .onErrorResume(ErrorResponseException.class, e -> {
+                String code = e.errorResponse().code();
+                if (!"NoSuchKey".equals(code) && !bucketRegistry.evictIfMissing(bucket, e)) {
+                    return Mono.error(e);
                 }
-            }));
+                log.warn("Video {} not found in MinIO: {}", metadata.getId(), code);
+                return Mono.just(UploadStatus.PENDING);
+            });
+    }
+
+    /**
+     * Checks every video of a competition against one streamed listing of its bucket
+     * instead of a lookup and a statObject per video. Videos in the shared bucket, whose
+     * keys are spread over hash prefixes, are checked object by object.
+     */
+    public Mono<UploadVerificationReport> verifyCompetitionUploads(String competitionId) {
+        String bucket = objectLayouts.competitionBucket(competitionId);
+        UploadVerificationReport report = new UploadVerificationReport();
+        return metadataRepository.findCompetitionObjectsAfter(competitionId, null)
+            .publish(videos -> Flux.merge(
+                joinWithListing(bucket, videos.filter(video -> bucket.equals(objectLayouts.bucketOf(video)))),
+                statEach(videos.filter(video -> !bucket.equals(objectLayouts.bucketOf(video))))))
+            .doOnNext(entry -> tally(report, entry))
+            .then(Mono.just(report));
+    }
+
+    /**
+     * Checks the given videos with one listing per competition bucket they belong to,
+     * and object by object in the shared bucket.
+     */
+    public Mono<UploadVerificationReport> verifyUploads(List<String> videoIds) {
+        if (videoIds == null || videoIds.isEmpty() || videoIds.size() > maxVerifyIds) {
+            return Mono.error(new IllegalArgumentException("Between 1 and " + maxVerifyIds + " videoIds are required"));
+        }
+        return metadataRepository.findAllById(new LinkedHashSet<>(videoIds))
+            .collectMultimap(objectLayouts::bucketOf)
+            .flatMap(byBucket -> {
+                UploadVerificationReport report = new UploadVerificationReport();
+                Set<String> found = new HashSet<>();
+                byBucket.values().forEach(videos -> videos.forEach(video -> found.add(video.getId())));
+                new LinkedHashSet<>(videoIds).stream().filter(id -> !found.contains(id)).forEach(report.getUnknown()::add);
+                return Flux.fromIterable(byBucket.entrySet())
+                    .concatMap(entry -> {
+                        if (objectLayouts.competitionOfBucket(entry.getKey()) == null) {
+                            return statEach(Flux.fromIterable(entry.getValue()));
+                        }
+                        List<VideoMetadata> sorted = new ArrayList<>(entry.getValue());
+                        sorted.sort(Comparator.comparing(VideoMetadata::getStoredFilename, BucketListingJoin.CODE_POINT_ORDER));
+                        return joinWithListing(entry.getKey(), Flux.fromIterable(sorted));
+                    })
+                    .doOnNext(entry -> tally(report, entry))
+                    .then(Mono.just(report));
+            });
+    }
+
+    private Flux<BucketListingJoin.Entry> joinWithListing(String bucket, Flux<VideoMetadata> videosByStoredFilename) {
+        Flux<StoredObject> objects = storageBackend.listObjects(bucket)
+            .onErrorResume(e -> bucketRegistry.evictIfMissing(bucket, e), e -> Flux.empty());
+        return BucketListingJoin.join(videosByStoredFilename, objects)
+            .filter(entry -> entry.video() != null);
+    }
+
+    private Flux<BucketListingJoin.Entry> statEach(Flux<VideoMetadata> videos) {
+        return videos.flatMap(video -> {
+            String bucket = objectLayouts.bucketOf(video);
+            String object = video.getStoredFilename();
+            return storageBackend.statObject(bucket, object)
+                .map(stat -> new BucketListingJoin.Entry(object, video, new StoredObject(object, stat.size(), stat.etag(), null)))
+                .onErrorResume(ErrorResponseException.class, e -> "NoSuchKey".equals(e.errorResponse().code()) || bucketRegistry.evictIfMissing(bucket, e)
+                    ? Mono.just(new BucketListingJoin.Entry(object, video, null))
+                    : Mono.error(e));
+        }, listSignConcurrency);
+    }
+
+    private static void tally(UploadVerificationReport report, BucketListingJoin.Entry entry) {
+        String videoId = entry.video().getId();
+        report.setChecked(report.getChecked() + 1);
+        if (entry.object() == null) {
+            report.getMissing().add(videoId);
+        } else if (entry.object().size() != entry.video().getFileSize()) {
+            report.getSizeMismatched().add(videoId);
+        } else {
+            report.getPresent().add(videoId);
+        }
+    }
+
+    public Mono<Void> deleteVideo(String videoId) {
+        if (uploadDeduplicator.enabled()) {
+            return metadataCache.findById(videoId).flatMap(this::deleteSharedVideo);
+        }
+        return metadataCache.findById(videoId)
+            .flatMap(metadata -> {
+                String bucket = objectLayouts.bucketOf(metadata);
+                // A failed removal keeps the metadata and reaches the caller
+                return storageBackend.removeObject(bucket, metadata.getStoredFilename())
+                    .doOnError(e -> bucketRegistry.evictIfMissing(bucket, e))
+                    .then(Mono.defer(() -> {
+                        presignedUrlCache.invalidate(videoId);
+                        return metadataWriter.delete(metadata, VideoEvent.of(VideoEvent.VIDEO_DELETED, metadata));
+                    }));
+            });
+    }
+
+    /**
+     * With deduplication objects may be shared: the metadata goes first and the object
+     * only when no other video references it. An object that cannot be removed is left
+     * for the orphan reconciler.
+     */
+    private Mono<Void> deleteSharedVideo(VideoMetadata metadata) {
+        presignedUrlCache.invalidate(metadata.getId());
+        return metadataWriter.delete(metadata, VideoEvent.of(VideoEvent.VIDEO_DELETED, metadata))
+            .then(uploadDeduplicator.unreferenced(List.of(metadata)))
+            .flatMapMany(Flux::fromIterable)
+            .concatMap(video -> {
+                String bucket = objectLayouts.bucketOf(video);
+                return storageBackend.removeObject(bucket, video.getStoredFilename())
+                    .onErrorResume(e -> {
+                        bucketRegistry.evictIfMissing(bucket, e);
+                        log.warn("Could not remove object {} of deleted video {}, leaving it to the orphan reconciler: {}",
+                            video.getStoredFilename(), video.getId(), e.getMessage());
+                        return Mono.empty();
+                    });
+            })
+            .then();
     }
 
     public Mono<VideoMetadata> getVideoMetadata(String videoId) {
-        return metadataRepository.findById(videoId);
+        return metadataCache.findById(videoId);
     }
 
-    public Mono<Void> deleteUserVideos(String userId) {
+    public Mono<DeletionSummary> deleteUserVideos(String userId) {
         log.info("Deleting video data for user: {}", userId);
-        return metadataRepository.findByUploaderId(userId)
+        return cascadeDelete("user " + userId, metadataRepository.findEventRefsByUploaderId(userId));
+    }
+
+    public Mono<DeletionSummary> deleteCompetitionVideos(String competitionId) {
+        log.info("Deleting video data for competition: {}", competitionId);
+        return cascadeDelete("competition " + competitionId, metadataRepository.findEventRefsByCompetitionId(competitionId));
+    }
+
+    /**
+     * Streams the matching documents in chunks, removes each chunk's objects with one
+     * multi-object delete per bucket and then drops the metadata of the objects that
+     * are really gone with one deleteMany. Only {@code cascadeConcurrency} chunks are
+     * in memory at a time.
+     */
+    private Mono<DeletionSummary> cascadeDelete(String scope, Flux<VideoEventRef> videos) {
+        AtomicLong requested = new AtomicLong();
+        AtomicLong deleted = new AtomicLong();
+        return videos
+                .buffer(DELETE_CHUNK_SIZE)
+                .flatMap(this::deleteChunk, cascadeConcurrency)
+                .doOnNext(chunk -> log.info("Deleting video data for {}: {} of {} videos deleted so far",
+                        scope, deleted.addAndGet(chunk.deleted()), requested.addAndGet(chunk.requested())))
+                .then(Mono.fromSupplier(() -> new DeletionSummary(requested.get(), deleted.get(), requested.get() - deleted.get())))
+                .doOnSuccess(summary -> log.info("Deleted video data for {}: {}", scope, summary))
+                .doOnError(error -> log.error("Failed to delete video data for {}", scope, error));
+    }
+
+    private Mono<ChunkDeletion> deleteChunk(List<VideoEventRef> chunk) {
+        if (uploadDeduplicator.enabled()) {
+            return deleteSharedChunk(chunk);
+        }
+        Map<String, List<VideoEventRef>> byBucket = new LinkedHashMap<>();
+        for (VideoEventRef video : chunk) {
+            byBucket.computeIfAbsent(objectLayouts.bucketOf(video), bucket -> new ArrayList<>()).add(video);
+        }
+        return Flux.fromIterable(byBucket.entrySet())
+                .concatMap(entry -> removeBucketObjects(entry.getKey(), entry.getValue()))
                 .collectList()
-                .flatMap(videos -> {
-                    log.info("Found {} videos to delete for user: {}", videos.size(), userId);
-                    return Flux.fromIterable(videos)
-                            .flatMap(video -> deleteVideo(video.getId()))
-                            .then();
+                .flatMap(removedPerBucket -> {
+                    List<VideoEventRef> removedVideos = new ArrayList<>();
+                    List<VideoEvent> events = new ArrayList<>();
+                    for (List<VideoEventRef> removed : removedPerBucket) {
+                        for (VideoEventRef video : removed) {
+                            removedVideos.add(video);
+                            events.add(VideoEvent.of(VideoEvent.VIDEO_DELETED, video));
+                        }
+                    }
+                    if (removedVideos.isEmpty()) {
+                        return Mono.just(new ChunkDeletion(chunk.size(), 0));
+                    }
+                    removedVideos.forEach(video -> presignedUrlCache.invalidate(video.getId()));
+                    return metadataWriter.deleteVideos(removedVideos, events).thenReturn(new ChunkDeletion(chunk.size(), removedVideos.size()));
+                });
+    }
+
+    /**
+     * Like {@link #deleteSharedVideo} for a chunk: drops all its metadata with one
+     * deleteMany, then removes the objects nobody references any more per bucket. Only
+     * videos whose document this call removed, and whose object is gone or still
+     * referenced, count as deleted.
+     */
+    private Mono<ChunkDeletion> deleteSharedChunk(List<VideoEventRef> chunk) {
+        List<VideoEvent> events = chunk.stream().map(video -> VideoEvent.of(VideoEvent.VIDEO_DELETED, video)).toList();
+        chunk.forEach(video -> presignedUrlCache.invalidate(video.getId()));
+        return metadataWriter.deleteVideos(chunk, events)
+                .flatMap(removed -> uploadDeduplicator.unreferenced(removed)
+                        .flatMapMany(unreferenced -> {
+                            Map<String, List<VideoEventRef>> byBucket = new LinkedHashMap<>();
+                            for (VideoEventRef video : unreferenced) {
+                                byBucket.computeIfAbsent(objectLayouts.bucketOf(video), bucket -> new ArrayList<>()).add(video);
+                            }
+                            return Flux.fromIterable(byBucket.entrySet());
+                        })
+                        .concatMap(entry -> removeBucketObjects(entry.getKey(), entry.getValue())
+                                .flatMapIterable(gone -> {
+                                    Set<VideoEventRef> kept = new HashSet<>(entry.getValue());
+                                    gone.forEach(kept::remove);
+                                    return kept.stream().map(this::objectKey).toList();
+                                }))
+                        .collect(Collectors.toSet())
+                        .map(keptObjects -> new ChunkDeletion(chunk.size(),
+                                removed.stream().filter(video -> !keptObjects.contains(objectKey(video))).count())));
+    }
+
+    private String objectKey(VideoObjectRef video) {
+        return objectLayouts.bucketOf(video) + "/" + video.getStoredFilename();
+    }
+
+    private Mono<List<VideoEventRef>> removeBucketObjects(String bucket, List<VideoEventRef> videos) {
+        List<String> objects = videos.stream().map(VideoEventRef::getStoredFilename).toList();
+        return storageBackend.removeObjects(bucket, objects)
+                .map(failed -> {
+                    if (!failed.isEmpty()) {
+                        log.warn("Could not remove {} of {} objects from {}", failed.size(), objects.size(), bucket);
+                    }
+                    Set<String> failedObjects = new HashSet<>(failed);
+                    return videos.stream()
+                            .filter(video -> !failedObjects.contains(video.getStoredFilename()))
+                            .toList();
                 })
-                .doOnSuccess(v -> log.info("Successfully deleted video data for user: {}", userId))
-                .doOnError(error -> log.error("Failed to delete video data for user: {}", userId, error));
+                .onErrorResume(e -> {
+                    if (bucketRegistry.evictIfMissing(bucket, e)) {
+                        // Without the bucket none of its objects exist any more
+                        return Mono.just(videos);
+                    }
+                    log.error("Failed to remove {} objects from {}", objects.size(), bucket, e);
+                    return Mono.just(List.of());
+                });
+    }
+
+    private static VideoMetadata newMetadata(ObjectLayout layout, String fileId, String competitionId, String uploaderId,
+                                             String originalFilename, String storedFilename, String contentType, long fileSize) {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId(fileId);
+        metadata.setCompetitionId(competitionId);
+        metadata.setUploaderId(uploaderId);
+        metadata.setOriginalFilename(originalFilename);
+        metadata.setStoredFilename(storedFilename);
+        metadata.setBucket(layout.bucket(competitionId));
+        metadata.setObjectLayout(layout.name());
+        metadata.setUploadTimestamp(Instant.now());
+        metadata.setFileSize(fileSize);
+        metadata.setContentType(contentType);
+        metadata.setUploadStatus(UploadStatus.PENDING);
+        return metadata;
+    }
+
+    private record PendingUpload(int index, UploadFileRequest file, VideoMetadata metadata, PresignedUrlResponse response, String error) {
+        static PendingUpload failed(int index, UploadFileRequest file, String error) {
+            return new PendingUpload(index, file, null, null, error);
+        }
+
+        PendingUpload withError(String error) {
+            return failed(index, file, error);
+        }
+
+        BatchUploadItem toItem() {
+            return new BatchUploadItem(index, file.getOriginalFilename(), response, error);
+        }
+    }
+
+    private record ChunkDeletion(long requested, long deleted) {
+    }
+
+    /**
+     * Opaque keyset position: the (uploadTimestamp, id) of the last video of a page. The
+     * timestamp is empty for legacy documents without one, which sort first.
+     */
+    private record PageCursor(Instant uploadTimestamp, String id) {
+        static PageCursor of(VideoMetadata video) {
+            return new PageCursor(video.getUploadTimestamp(), video.getId());
+        }
+
+        static PageCursor decode(String cursor) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                String timestamp = decoded.substring(0, separator);
+                return new PageCursor(timestamp.isEmpty() ? null : Instant.ofEpochMilli(Long.parseLong(timestamp)), decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        String encode() {
+            String raw = (uploadTimestamp == null ? "" : String.valueOf(uploadTimestamp.toEpochMilli())) + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
     }
-} 
\ No newline at end of file
+}
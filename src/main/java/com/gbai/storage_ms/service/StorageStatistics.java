@@ -0,0 +1,209 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.model.StorageStats;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoEventRef;
+import com.gbai.storage_ms.repository.StorageStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-competition and per-uploader counts and bytes of completed uploads, kept in
+ * {@code storage_stats} so quota checks and dashboards read one document instead of
+ * scanning the videos. {@link MetadataWriter} reports every completion and deletion.
+ *
+ * <p>Changes go to Mongo as {@code $inc} right away, or with hot counters enabled are
+ * summed in memory and flushed every {@code storage.stats.hot-counters.flush-interval}
+ * as one bulk write; reads on this instance include its unflushed changes. The counters
+ * are rebuilt from the videos when the collection is empty at startup, on request and,
+ * if configured, periodically. Changes that land while a rebuild runs may be counted
+ * twice or not at all until the next rebuild.
+ */
+@Slf4j
+@Component
+public class StorageStatistics {
+    private final StorageStatsRepository statsRepository;
+    private final boolean hotCounters;
+    private final Duration flushInterval;
+    private final Duration rebuildInterval;
+    private final Clock clock;
+    private final ConcurrentMap<String, StorageStats.Delta> pending = new ConcurrentHashMap<>();
+    private Disposable flushLoop;
+    private Disposable rebuildLoop;
+
+    @Autowired
+    public StorageStatistics(StorageStatsRepository statsRepository,
+                             @Value("${storage.stats.hot-counters.enabled:false}") boolean hotCounters,
+                             @Value("${storage.stats.hot-counters.flush-interval:1s}") Duration flushInterval,
+                             @Value("${storage.stats.rebuild-interval:0s}") Duration rebuildInterval) {
+        this(statsRepository, hotCounters, flushInterval, rebuildInterval, Clock.systemUTC());
+    }
+
+    StorageStatistics(StorageStatsRepository statsRepository, boolean hotCounters, Duration flushInterval,
+                      Duration rebuildInterval, Clock clock) {
+        this.statsRepository = statsRepository;
+        this.hotCounters = hotCounters;
+        this.flushInterval = flushInterval;
+        this.rebuildInterval = rebuildInterval;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (hotCounters) {
+            flushLoop = Flux.interval(flushInterval, flushInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> flush(), 1)
+                    .subscribe();
+        }
+        statsRepository.count()
+                .filter(count -> count == 0)
+                .flatMap(empty -> rebuild())
+                .subscribe(null, e -> log.warn("Initial storage statistics rebuild failed: {}", e.getMessage()));
+        if (!rebuildInterval.isZero()) {
+            rebuildLoop = Flux.interval(rebuildInterval, rebuildInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> rebuild()
+                            .onErrorResume(e -> {
+                                log.error("Storage statistics rebuild failed", e);
+                                return Mono.empty();
+                            }), 1)
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuildLoop != null) {
+            rebuildLoop.dispose();
+        }
+        if (flushLoop != null) {
+            flushLoop.dispose();
+            flush().block(Duration.ofSeconds(10));
+        }
+    }
+
+    /**
+     * Counts a video whose upload just completed.
+     */
+    public Mono<Void> uploaded(VideoEventRef video) {
+        return apply(deltas(List.of(video), 1));
+    }
+
+    /**
+     * Takes deleted videos out of the counters; only completed uploads were counted.
+     */
+    public Mono<Void> removed(Collection<? extends VideoEventRef> videos) {
+        return apply(deltas(videos, -1));
+    }
+
+    public Mono<StorageStats> competition(String competitionId) {
+        return find(StorageStats.COMPETITION, competitionId);
+    }
+
+    public Mono<StorageStats> uploader(String uploaderId) {
+        return find(StorageStats.UPLOADER, uploaderId);
+    }
+
+    /**
+     * Recomputes all counters from the completed videos, after flushing local changes.
+     */
+    public Mono<Void> rebuild() {
+        return flush()
+                .then(Mono.defer(() -> {
+                    Instant started = clock.instant().truncatedTo(ChronoUnit.MILLIS);
+                    log.info("Rebuilding storage statistics");
+                    return statsRepository.rebuild(started)
+                            .doOnSuccess(done -> log.info("Rebuilt storage statistics in {} ms",
+                                    Duration.between(started, clock.instant()).toMillis()));
+                }));
+    }
+
+    /**
+     * Writes the changes summed in memory with one bulk write; on failure they are kept
+     * for the next flush.
+     */
+    Mono<Void> flush() {
+        return Mono.defer(() -> {
+            List<StorageStats.Delta> batch = new ArrayList<>();
+            for (String id : pending.keySet()) {
+                StorageStats.Delta delta = pending.remove(id);
+                if (delta != null && (delta.videos() != 0 || delta.bytes() != 0)) {
+                    batch.add(delta);
+                }
+            }
+            return statsRepository.increment(batch, clock.instant())
+                    .onErrorResume(e -> {
+                        log.warn("Flushing {} storage statistics changes failed, keeping them: {}", batch.size(), e.getMessage());
+                        batch.forEach(this::accumulate);
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private Mono<StorageStats> find(String scope, String key) {
+        return statsRepository.findById(StorageStats.id(scope, key))
+                .defaultIfEmpty(StorageStats.empty(scope, key))
+                .map(stats -> {
+                    StorageStats.Delta local = pending.get(stats.getId());
+                    if (local != null) {
+                        stats.setVideos(stats.getVideos() + local.videos());
+                        stats.setBytes(stats.getBytes() + local.bytes());
+                    }
+                    return stats;
+                });
+    }
+
+    private Mono<Void> apply(List<StorageStats.Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        if (hotCounters) {
+            return Mono.fromRunnable(() -> deltas.forEach(this::accumulate));
+        }
+        return Mono.defer(() -> statsRepository.increment(deltas, clock.instant()));
+    }
+
+    private void accumulate(StorageStats.Delta delta) {
+        pending.merge(delta.id(), delta, StorageStats.Delta::plus);
+    }
+
+    private static List<StorageStats.Delta> deltas(Collection<? extends VideoEventRef> videos, int sign) {
+        Map<String, StorageStats.Delta> merged = new LinkedHashMap<>();
+        for (VideoEventRef video : videos) {
+            if (video.getUploadStatus() != UploadStatus.COMPLETE) {
+                continue;
+            }
+            long bytes = video.getActualSize() != null ? video.getActualSize() : 0;
+            if (video.getCompetitionId() != null) {
+                merged.merge(StorageStats.id(StorageStats.COMPETITION, video.getCompetitionId()),
+                        new StorageStats.Delta(StorageStats.COMPETITION, video.getCompetitionId(), sign, sign * bytes), StorageStats.Delta::plus);
+            }
+            if (video.getUploaderId() != null) {
+                merged.merge(StorageStats.id(StorageStats.UPLOADER, video.getUploaderId()),
+                        new StorageStats.Delta(StorageStats.UPLOADER, video.getUploaderId(), sign, sign * bytes), StorageStats.Delta::plus);
+            }
+        }
+        return List.copyOf(merged.values());
+    }
+}
@@ -0,0 +1,179 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.event.VideoEvent;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.model.VideoObjectRef;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Lets a video reuse an object the same uploader already stored, so a file submitted to
+ * several competitions is kept once. Clients pass the hex MD5 of the file as content
+ * hash; it is compared with the ETag MinIO computed for completed single-part uploads,
+ * so only content MinIO has actually received is reused. Multipart ETags never look
+ * like an MD5 and never match.
+ *
+ * <p>A reused object is referenced by several video documents, all recording its bucket
+ * and stored filename, and the documents themselves are the reference count. Deletions
+ * drop the metadata first and only remove the object once no document references it;
+ * a new reference checks after its insert that the object is still referenced by
+ * another document. Each side writes before it reads, so an object is never removed
+ * under a reference, while a removal that fails or loses a race leaves a stray object
+ * for the {@link OrphanReconciler}.
+ */
+@Slf4j
+@Component
+public class UploadDeduplicator {
+    private static final Pattern MD5_HEX = Pattern.compile("[0-9a-f]{32}");
+
+    private final VideoMetadataRepository metadataRepository;
+    private final MetadataWriter metadataWriter;
+    private final ObjectLayouts objectLayouts;
+    private final boolean enabled;
+
+    public UploadDeduplicator(VideoMetadataRepository metadataRepository,
+                              MetadataWriter metadataWriter,
+                              ObjectLayouts objectLayouts,
+                              @Value("${storage.dedup.enabled:false}") boolean enabled) {
+        this.metadataRepository = metadataRepository;
+        this.metadataWriter = metadataWriter;
+        this.objectLayouts = objectLayouts;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Whether content hashes are honoured and deletions have to respect shared objects.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a completed video referencing the uploader's stored copy of the file, or
+     * completes empty when there is none and the file has to be uploaded.
+     */
+    public Mono<VideoMetadata> reuse(String competitionId, String uploaderId, String originalFilename, String contentType,
+                                     long fileSize, String contentHash) {
+        return Mono.fromSupplier(() -> normalize(contentHash))
+            .flatMap(etag -> metadataRepository.findUploadedCopy(uploaderId, etag, fileSize))
+            .flatMap(copy -> {
+                VideoMetadata reference = newReference(copy, competitionId, uploaderId, originalFilename, contentType);
+                return metadataWriter.insert(reference, VideoEvent.of(VideoEvent.VIDEO_UPLOADED, reference))
+                    .then(referencedElsewhere(reference))
+                    .flatMap(stillStored -> {
+                        if (stillStored) {
+                            return Mono.just(reference);
+                        }
+                        // The copy was deleted meanwhile and its object may be gone already
+                        log.info("Stored copy of video {} disappeared, uploading it again", reference.getId());
+                        return metadataWriter.delete(reference, VideoEvent.of(VideoEvent.VIDEO_DELETED, reference))
+                            .then(Mono.empty());
+                    });
+            });
+    }
+
+    /**
+     * Of videos whose metadata was just deleted, one per object that no remaining
+     * document references, so its object can be removed.
+     */
+    public <V extends VideoObjectRef> Mono<List<V>> unreferenced(Collection<V> deleted) {
+        Map<String, V> byObject = new LinkedHashMap<>();
+        for (V video : deleted) {
+            byObject.putIfAbsent(objectKey(objectLayouts.bucketOf(video), video.getStoredFilename()), video);
+        }
+        if (byObject.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return findReferenced(byObject.values())
+            .map(referenced -> {
+                List<V> unreferenced = new ArrayList<>();
+                byObject.forEach((key, video) -> {
+                    if (!referenced.containsKey(key)) {
+                        unreferenced.add(video);
+                    }
+                });
+                return unreferenced;
+            });
+    }
+
+    private Mono<Boolean> referencedElsewhere(VideoMetadata reference) {
+        return findReferenced(List.of(reference))
+            .map(referenced -> referenced.getOrDefault(objectKey(reference.getBucket(), reference.getStoredFilename()), Set.of())
+                .stream()
+                .anyMatch(id -> !id.equals(reference.getId())));
+    }
+
+    /**
+     * The ids of the documents referencing each of the given videos' objects, keyed by
+     * {@link #objectKey}.
+     */
+    private Mono<Map<String, Set<String>>> findReferenced(Collection<? extends VideoObjectRef> videos) {
+        Set<String> buckets = new HashSet<>();
+        Set<String> legacyCompetitionIds = new HashSet<>();
+        Set<String> storedFilenames = new HashSet<>();
+        for (VideoObjectRef video : videos) {
+            String bucket = objectLayouts.bucketOf(video);
+            buckets.add(bucket);
+            String competitionId = objectLayouts.competitionOfBucket(bucket);
+            if (competitionId != null) {
+                legacyCompetitionIds.add(competitionId);
+            }
+            storedFilenames.add(video.getStoredFilename());
+        }
+        return metadataRepository.findObjectRefs(buckets, legacyCompetitionIds, storedFilenames)
+            .<Map<String, Set<String>>>collect(HashMap::new, (referenced, video) -> referenced
+                .computeIfAbsent(objectKey(objectLayouts.bucketOf(video), video.getStoredFilename()), key -> new HashSet<>())
+                .add(video.getId()));
+    }
+
+    private VideoMetadata newReference(VideoMetadata copy, String competitionId, String uploaderId, String originalFilename,
+                                       String contentType) {
+        Instant now = Instant.now();
+        VideoMetadata reference = new VideoMetadata();
+        reference.setId(UUID.randomUUID().toString());
+        reference.setCompetitionId(competitionId);
+        reference.setUploaderId(uploaderId);
+        reference.setOriginalFilename(originalFilename);
+        reference.setStoredFilename(copy.getStoredFilename());
+        reference.setBucket(objectLayouts.bucketOf(copy));
+        reference.setObjectLayout(copy.getObjectLayout());
+        reference.setUploadTimestamp(now);
+        reference.setFileSize(copy.getActualSize());
+        reference.setContentType(contentType);
+        reference.setUploadStatus(UploadStatus.COMPLETE);
+        reference.setActualSize(copy.getActualSize());
+        reference.setEtag(copy.getEtag());
+        reference.setUploadCompletedAt(now);
+        return reference;
+    }
+
+    static String normalize(String contentHash) {
+        String etag = contentHash.trim().toLowerCase(Locale.ROOT);
+        if (!MD5_HEX.matcher(etag).matches()) {
+            throw new IllegalArgumentException("contentHash must be the hex MD5 of the file");
+        }
+        return etag;
+    }
+
+    private static String objectKey(String bucket, String storedFilename) {
+        return bucket + "/" + storedFilename;
+    }
+}
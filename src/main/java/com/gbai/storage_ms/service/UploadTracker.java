@@ -0,0 +1,115 @@
+package com.gbai.storage_ms.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.gbai.storage_ms.event.VideoEvent;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Turns MinIO object-created notifications into upload status changes on the video
+ * metadata, and lets waiting clients observe those changes as they happen on this
+ * instance.
+ */
+@Slf4j
+@Component
+public class UploadTracker {
+    private final VideoMetadataRepository metadataRepository;
+    private final MetadataWriter metadataWriter;
+    private final ObjectLayouts objectLayouts;
+    private final byte[] webhookToken;
+    private final Sinks.Many<VideoMetadata> updates = Sinks.many().multicast().directBestEffort();
+
+    public UploadTracker(VideoMetadataRepository metadataRepository,
+                         MetadataWriter metadataWriter,
+                         ObjectLayouts objectLayouts,
+                         @Value("${storage.notifications.webhook-token:}") String webhookToken) {
+        this.metadataRepository = metadataRepository;
+        this.metadataWriter = metadataWriter;
+        this.objectLayouts = objectLayouts;
+        this.webhookToken = webhookToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks the {@code Authorization} header MinIO sends with webhook notifications.
+     * Without a configured token every request is refused.
+     */
+    public boolean acceptsWebhook(String authorization) {
+        if (webhookToken.length == 0 || authorization == null) {
+            return false;
+        }
+        String token = authorization.startsWith("Bearer ") ? authorization.substring("Bearer ".length()) : authorization;
+        return MessageDigest.isEqual(webhookToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Applies an S3-style event notification, as delivered by MinIO's webhook or Kafka
+     * targets, and returns how many videos changed. Records that are not object-created
+     * events or do not belong to a known video are skipped.
+     */
+    public Mono<Long> handleNotification(JsonNode notification) {
+        return Flux.fromIterable(notification.path("Records"))
+                .filter(record -> record.path("eventName").asText().startsWith("s3:ObjectCreated:"))
+                .concatMap(record -> {
+                    JsonNode s3 = record.path("s3");
+                    String bucket = s3.path("bucket").path("name").asText();
+                    String object = URLDecoder.decode(s3.path("object").path("key").asText(), StandardCharsets.UTF_8);
+                    return recordUpload(bucket, object, s3.path("object").path("size").asLong(), s3.path("object").path("eTag").asText(null))
+                            .doOnError(e -> log.warn("Could not record upload of {}/{}: {}", bucket, object, e.getMessage()));
+                })
+                .count();
+    }
+
+    /**
+     * Marks the video stored as {@code object} uploaded, or failed when the object's size
+     * differs from the size announced when the upload URL was issued. Empty when the
+     * object is unknown or the video was already complete.
+     */
+    public Mono<VideoMetadata> recordUpload(String bucket, String object, long size, String etag) {
+        String videoId = objectLayouts.fileId(bucket, object);
+        if (videoId == null) {
+            return Mono.empty();
+        }
+        return metadataRepository.findById(videoId)
+                .filter(metadata -> bucket.equals(objectLayouts.bucketOf(metadata)) && object.equals(metadata.getStoredFilename()))
+                .flatMap(metadata -> {
+                    UploadStatus status = size == metadata.getFileSize() ? UploadStatus.COMPLETE : UploadStatus.FAILED;
+                    if (status == UploadStatus.FAILED) {
+                        log.warn("Video {} arrived with {} bytes instead of {}", videoId, size, metadata.getFileSize());
+                    }
+                    VideoEvent event = status == UploadStatus.COMPLETE ? VideoEvent.of(VideoEvent.VIDEO_UPLOADED, metadata) : null;
+                    return metadataWriter.recordUpload(videoId, object, status, size, stripQuotes(etag), event);
+                })
+                .doOnNext(this::publish);
+    }
+
+    /**
+     * Status changes of one video recorded by this instance from now on.
+     */
+    public Flux<VideoMetadata> updates(String videoId) {
+        return updates.asFlux().filter(metadata -> videoId.equals(metadata.getId()));
+    }
+
+    private void publish(VideoMetadata metadata) {
+        while (updates.tryEmitNext(metadata) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static String stripQuotes(String etag) {
+        return etag != null && etag.length() > 1 && etag.startsWith("\"") && etag.endsWith("\"")
+                ? etag.substring(1, etag.length() - 1)
+                : etag;
+    }
+}
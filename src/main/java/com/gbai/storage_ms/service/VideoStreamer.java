@@ -0,0 +1,209 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.storage.StorageBackend;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves video objects through the service for clients that cannot reach MinIO and so
+ * cannot use presigned URLs. The body is read from MinIO buffer by buffer as the
+ * connection drains, into buffers from the response's own factory (pooled Netty buffers
+ * on the server, written without another copy), so a stream holds a bounded number of
+ * buffers whatever the video's size. Single byte ranges and {@code If-None-Match}
+ * revalidation against the object's ETag are supported; several ranges in one request
+ * get the whole video.
+ *
+ * <p>Every open stream reads on the MinIO I/O scheduler, so at most
+ * {@code storage.stream.max-concurrent} streams are started; further requests are
+ * answered 503 before anything is sent. A slot is taken when the response is built and
+ * given back when its body ends, or when the response is committed without the body,
+ * as an error response is.
+ */
+@Component
+public class VideoStreamer {
+    private final MetadataCache metadataCache;
+    private final StorageBackend storageBackend;
+    private final ObjectLayouts objectLayouts;
+    private final boolean enabled;
+    private final int bufferSize;
+    private final int maxConcurrent;
+    private final AtomicInteger open = new AtomicInteger();
+
+    public VideoStreamer(MetadataCache metadataCache,
+                         StorageBackend storageBackend,
+                         ObjectLayouts objectLayouts,
+                         MeterRegistry meterRegistry,
+                         @Value("${storage.stream.enabled:false}") boolean enabled,
+                         @Value("${storage.stream.buffer-size:16KB}") DataSize bufferSize,
+                         @Value("${storage.stream.max-concurrent:64}") int maxConcurrent) {
+        this.metadataCache = metadataCache;
+        this.storageBackend = storageBackend;
+        this.objectLayouts = objectLayouts;
+        this.enabled = enabled;
+        this.bufferSize = (int) bufferSize.toBytes();
+        this.maxConcurrent = maxConcurrent;
+        Gauge.builder("storage.streams.open", open, AtomicInteger::get)
+                .description("Video downloads currently streamed through the service")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The response to a GET or HEAD of the video: the whole object, the requested range,
+     * 304 when the client's copy is current, 416 for a range past the end, or 404 when
+     * the video or its object does not exist.
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> stream(String videoId, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!enabled) {
+            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Streaming downloads are disabled"));
+        }
+        return metadataCache.findById(videoId)
+            .flatMap(this::describe)
+            .map(object -> respond(object, request, response))
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Size and ETag from the metadata of completed uploads, from MinIO otherwise.
+     */
+    private Mono<StreamedObject> describe(VideoMetadata video) {
+        String bucket = objectLayouts.bucketOf(video);
+        String contentType = video.getContentType();
+        if (video.getUploadStatus() == UploadStatus.COMPLETE && video.getActualSize() != null && video.getEtag() != null) {
+            return Mono.just(new StreamedObject(bucket, video.getStoredFilename(), video.getActualSize(), video.getEtag(), contentType));
+        }
+        return storageBackend.statObject(bucket, video.getStoredFilename())
+            .map(stat -> new StreamedObject(bucket, video.getStoredFilename(), stat.size(), unquote(stat.etag()), contentType));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> respond(StreamedObject object, ServerHttpRequest request, ServerHttpResponse response) {
+        HttpHeaders requestHeaders = request.getHeaders();
+        String etag = "\"" + object.etag() + "\"";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (matches(requestHeaders.getIfNoneMatch(), object.etag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentType(mediaType(object.contentType()));
+
+        long offset = 0;
+        long length = object.size();
+        HttpStatus status = HttpStatus.OK;
+        HttpRange range = singleRange(requestHeaders, etag);
+        if (range != null) {
+            if (object.size() == 0 || range.getRangeStart(object.size()) >= object.size()) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + object.size());
+                return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            }
+            offset = range.getRangeStart(object.size());
+            length = range.getRangeEnd(object.size()) - offset + 1;
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + (offset + length - 1) + "/" + object.size());
+        }
+        headers.setContentLength(length);
+        if (HttpMethod.HEAD.equals(request.getMethod()) || length == 0) {
+            return new ResponseEntity<>(headers, status);
+        }
+        if (open.incrementAndGet() > maxConcurrent) {
+            open.decrementAndGet();
+            throw new RejectedExecutionException("Too many videos are being streamed, try again later");
+        }
+        Slot slot = new Slot();
+        response.beforeCommit(() -> Mono.fromRunnable(() -> {
+            if (!slot.subscribed) {
+                slot.release();
+            }
+        }));
+        return new ResponseEntity<>(body(object, offset, length, response.bufferFactory(), slot), headers, status);
+    }
+
+    private Flux<DataBuffer> body(StreamedObject object, long offset, long length, DataBufferFactory bufferFactory, Slot slot) {
+        return Flux.defer(() -> {
+            slot.subscribed = true;
+            return storageBackend.getObject(object.bucket(), object.object(), offset, length, bufferFactory, bufferSize);
+        }).doFinally(signal -> slot.release());
+    }
+
+    /**
+     * The one range requested, or null for the whole object: without a usable Range
+     * header, with several ranges, or when {@code If-Range} names another version.
+     */
+    private static HttpRange singleRange(HttpHeaders requestHeaders, String etag) {
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            // An unparsable Range header is ignored rather than rejected
+            return null;
+        }
+        if (ranges.size() != 1) {
+            return null;
+        }
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(etag) ? ranges.get(0) : null;
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || etag.equals(unquote(candidate.startsWith("W/") ? candidate.substring(2) : candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MediaType mediaType(String contentType) {
+        try {
+            return contentType != null ? MediaType.parseMediaType(contentType) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (InvalidMediaTypeException e) {
+            // Content types are whatever the uploader declared
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    private static String unquote(String etag) {
+        return etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"") ? etag.substring(1, etag.length() - 1) : etag;
+    }
+
+    /**
+     * A reserved stream, released once whichever of body and commit ends it first.
+     */
+    private final class Slot {
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean subscribed;
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                open.decrementAndGet();
+            }
+        }
+    }
+
+    private record StreamedObject(String bucket, String object, long size, String etag, String contentType) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.gbai.storage_ms.storage;
+
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioAsyncClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.http.Method;
+import io.minio.messages.Bucket;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Backend on {@link MinioAsyncClient}. Object and bucket operations are bridged from
+ * the SDK's {@link CompletableFuture}s, so no thread is held while a request is in flight.
+ * Presigning stays on the I/O scheduler because the SDK may resolve the bucket region
+ * synchronously before signing.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "minio.backend", havingValue = "async")
+public class AsyncMinioStorageBackend implements StorageBackend {
+    private final MinioAsyncClient minioAsyncClient;
+    private final MinioIoExecutor minioIo;
+
+    @Override
+    public Flux<String> listBuckets() {
+        return future("listBuckets", minioAsyncClient::listBuckets)
+                .flatMapIterable(buckets -> buckets)
+                .map(Bucket::name);
+    }
+
+    @Override
+    public Mono<Boolean> bucketExists(String bucket) {
+        return future("bucketExists", () -> minioAsyncClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build()));
+    }
+
+    @Override
+    public Mono<Void> makeBucket(String bucket) {
+        return future("makeBucket", () -> minioAsyncClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build()));
+    }
+
+    @Override
+    public Mono<String> presignedUrl(Method method, String bucket, String object, int expirySeconds, Map<String, String> extraQueryParams) {
+        return minioIo.call("presign" + method, () -> minioAsyncClient.getPresignedObjectUrl(
+                GetPresignedObjectUrlArgs.builder()
+                        .method(method)
+                        .bucket(bucket)
+                        .object(object)
+                        .expiry(expirySeconds)
+                        .extraQueryParams(extraQueryParams)
+                        .build()));
+    }
+
+    @Override
+    public Mono<StatObjectResponse> statObject(String bucket, String object) {
+        return future("statObject", () -> minioAsyncClient.statObject(StatObjectArgs.builder().bucket(bucket).object(object).build()));
+    }
+
+    @Override
+    public Mono<Void> removeObject(String bucket, String object) {
+        return future("removeObject", () -> minioAsyncClient.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(object).build()));
+    }
+
+    @Override
+    public Flux<DataBuffer> getObject(String bucket, String object, long offset, Long length, DataBufferFactory bufferFactory, int bufferSize) {
+        // The response body is an InputStream read with blocking calls, so the read stays on the I/O scheduler
+        return minioIo.read("getObject", () -> {
+            try {
+                return minioAsyncClient.getObject(
+                        GetObjectArgs.builder().bucket(bucket).object(object).offset(offset).length(length).build()).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }, bufferFactory, bufferSize);
+    }
+
+    @Override
+    public Mono<List<String>> removeObjects(String bucket, List<String> objects) {
+        // The SDK sends the delete lazily while the results are iterated, so this stays on the I/O scheduler
+        return minioIo.call("removeObjects", () -> {
+            List<DeleteObject> toDelete = new ArrayList<>(objects.size());
+            objects.forEach(object -> toDelete.add(new DeleteObject(object)));
+            List<String> failed = new ArrayList<>();
+            for (Result<DeleteError> result : minioAsyncClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(bucket).objects(toDelete).build())) {
+                failed.add(result.get().objectName());
+            }
+            return failed;
+        });
+    }
+
+    @Override
+    public Flux<StoredObject> listObjects(String bucket, String startAfter) {
+        // The SDK pages through the listing while it is iterated, so this stays on the I/O scheduler
+        return minioIo.stream("listObjects", () -> minioAsyncClient.listObjects(
+                        ListObjectsArgs.builder().bucket(bucket).startAfter(startAfter).recursive(true).build()))
+                .handle((result, sink) -> {
+                    try {
+                        sink.next(StoredObject.of(result));
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                });
+    }
+
+    private <T> Mono<T> future(String operation, AsyncCall<T> call) {
+        return minioIo.timed(operation, Mono.defer(() -> {
+                    try {
+                        return Mono.fromFuture(call.start());
+                    } catch (Exception e) {
+                        return Mono.error(e);
+                    }
+                })
+                .onErrorMap(CompletionException.class, e -> e.getCause() != null ? e.getCause() : e));
+    }
+
+    @FunctionalInterface
+    private interface AsyncCall<T> {
+        CompletableFuture<T> start() throws Exception;
+    }
+}
@@ -0,0 +1,215 @@
+package com.gbai.storage_ms.storage;
+
+import io.minio.http.Method;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes AWS Signature V4 query-string presigned URLs in-process against the pinned
+ * {@code minio.region}, so presigning is pure CPU work and never waits for a bucket
+ * location lookup. Signing keys are derived once per day and each thread reuses its own
+ * {@link Mac} and {@link MessageDigest}.
+ */
+@Component
+@ConditionalOnProperty(name = "minio.presign.mode", havingValue = "local")
+public class LocalSigV4Presigner implements UrlPresigner {
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String baseUrl;
+    private final String hostHeader;
+    private final String encodedAccessKey;
+    private final String secretKey;
+    private final String region;
+    private final Map<String, byte[]> signingKeys = new ConcurrentHashMap<>();
+    private final ThreadLocal<Signer> signers = ThreadLocal.withInitial(Signer::new);
+
+    public LocalSigV4Presigner(@Value("${minio.url}") String minioUrl,
+                               @Value("${minio.access-key}") String accessKey,
+                               @Value("${minio.secret-key}") String secretKey,
+                               @Value("${minio.region:us-east-1}") String region) {
+        URI endpoint = URI.create(minioUrl);
+        boolean defaultPort = endpoint.getPort() == -1
+                || ("http".equals(endpoint.getScheme()) && endpoint.getPort() == 80)
+                || ("https".equals(endpoint.getScheme()) && endpoint.getPort() == 443);
+        this.hostHeader = defaultPort ? endpoint.getHost() : endpoint.getHost() + ":" + endpoint.getPort();
+        this.baseUrl = endpoint.getScheme() + "://" + hostHeader;
+        StringBuilder encoded = new StringBuilder();
+        uriEncode(encoded, accessKey, false);
+        this.encodedAccessKey = encoded.toString();
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    @Override
+    public Mono<String> presign(Method method, String bucket, String object, int expirySeconds, Instant signedAt,
+                                Map<String, String> extraQueryParams) {
+        return Mono.fromSupplier(() -> {
+            StringBuilder path = new StringBuilder(bucket.length() + object.length() + 16).append('/');
+            uriEncode(path, bucket, false);
+            path.append('/');
+            uriEncode(path, object, true);
+            return sign(method.name(), path.toString(), expirySeconds, signedAt, extraQueryParams);
+        });
+    }
+
+    String sign(String method, String canonicalUri, int expirySeconds, Instant signedAt) {
+        return sign(method, canonicalUri, expirySeconds, signedAt, Map.of());
+    }
+
+    String sign(String method, String canonicalUri, int expirySeconds, Instant signedAt, Map<String, String> extraQueryParams) {
+        String amzDate = AMZ_DATE.format(signedAt);
+        String date = amzDate.substring(0, 8);
+        Signer signer = signers.get();
+
+        StringBuilder query = signer.builder();
+        query.append("X-Amz-Algorithm=").append(ALGORITHM)
+                .append("&X-Amz-Credential=").append(encodedAccessKey).append("%2F")
+                .append(date).append("%2F").append(region).append("%2Fs3%2Faws4_request")
+                .append("&X-Amz-Date=").append(amzDate)
+                .append("&X-Amz-Expires=").append(expirySeconds)
+                .append("&X-Amz-SignedHeaders=host");
+        String canonicalQuery = extraQueryParams.isEmpty() ? query.toString() : withExtraParams(query.toString(), extraQueryParams);
+
+        StringBuilder canonicalRequest = signer.builder();
+        canonicalRequest.append(method).append('\n')
+                .append(canonicalUri).append('\n')
+                .append(canonicalQuery).append('\n')
+                .append("host:").append(hostHeader).append("\n\n")
+                .append("host\n")
+                .append("UNSIGNED-PAYLOAD");
+        byte[] canonicalHash = signer.sha256(canonicalRequest);
+
+        StringBuilder stringToSign = signer.builder();
+        stringToSign.append(ALGORITHM).append('\n')
+                .append(amzDate).append('\n')
+                .append(date).append('/').append(region).append("/s3/aws4_request\n");
+        appendHex(stringToSign, canonicalHash);
+        byte[] signature = signer.hmac(signingKey(date), stringToSign);
+
+        StringBuilder url = signer.builder();
+        url.append(baseUrl).append(canonicalUri).append('?').append(canonicalQuery).append("&X-Amz-Signature=");
+        appendHex(url, signature);
+        return url.toString();
+    }
+
+    // Canonical query parameters must be sorted by encoded name
+    private static String withExtraParams(String authQuery, Map<String, String> extraQueryParams) {
+        TreeMap<String, String> sorted = new TreeMap<>();
+        for (String param : authQuery.split("&")) {
+            sorted.put(param.substring(0, param.indexOf('=')), param);
+        }
+        extraQueryParams.forEach((name, value) -> {
+            StringBuilder param = new StringBuilder();
+            uriEncode(param, name, false);
+            String encodedName = param.toString();
+            uriEncode(param.append('='), value, false);
+            sorted.put(encodedName, param.toString());
+        });
+        StringJoiner query = new StringJoiner("&");
+        sorted.values().forEach(query::add);
+        return query.toString();
+    }
+
+    private byte[] signingKey(String date) {
+        byte[] key = signingKeys.get(date);
+        if (key != null) {
+            return key;
+        }
+        // Signatures aligned to the start of a window can still use yesterday's date around midnight
+        if (signingKeys.size() > 2) {
+            signingKeys.keySet().removeIf(cached -> cached.compareTo(date) < 0);
+        }
+        return signingKeys.computeIfAbsent(date, this::deriveSigningKey);
+    }
+
+    private byte[] deriveSigningKey(String date) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA256);
+            byte[] key = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
+            for (String part : new String[]{date, region, "s3", "aws4_request"}) {
+                mac.init(new SecretKeySpec(key, HMAC_SHA256));
+                key = mac.doFinal(part.getBytes(StandardCharsets.UTF_8));
+            }
+            return key;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to derive SigV4 signing key", e);
+        }
+    }
+
+    static void uriEncode(StringBuilder out, String value, boolean keepSlash) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                out.append(c);
+            } else {
+                out.append('%').append(Character.toUpperCase(HEX[c >> 4])).append(Character.toUpperCase(HEX[c & 0xf]));
+            }
+        }
+    }
+
+    private static void appendHex(StringBuilder out, byte[] bytes) {
+        for (byte b : bytes) {
+            out.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+        }
+    }
+
+    /**
+     * Per-thread crypto state so the hot path only allocates the strings it returns.
+     */
+    private static final class Signer {
+        private final Mac mac;
+        private final MessageDigest digest;
+        private final StringBuilder builder = new StringBuilder(512);
+        private byte[] macKey;
+
+        Signer() {
+            try {
+                mac = Mac.getInstance(HMAC_SHA256);
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        StringBuilder builder() {
+            builder.setLength(0);
+            return builder;
+        }
+
+        byte[] sha256(CharSequence text) {
+            return digest.digest(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] hmac(byte[] key, CharSequence text) {
+            try {
+                if (key != macKey) {
+                    mac.init(new SecretKeySpec(key, HMAC_SHA256));
+                    macKey = key;
+                }
+                return mac.doFinal(text.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to sign presigned URL", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.gbai.storage_ms.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads MinIO API requests over the nodes of a cluster. Each request goes to the
+ * healthy node with the fewest requests outstanding from this instance; a node that
+ * cannot be connected to is marked down and the request fails over to the next one.
+ * Nodes are probed on MinIO's liveness endpoint in the background and come back once
+ * they answer.
+ *
+ * <p>Requests are signed for {@code minio.url} and keep that Host header, which every
+ * node of a cluster accepts. Presigned URLs are unaffected and keep pointing at
+ * {@code minio.url}, normally the cluster's load balancer.
+ */
+@Slf4j
+@Component
+public class MinioEndpointRouter implements Interceptor {
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(2);
+
+    private final List<Node> nodes;
+    private final Duration healthInterval;
+    private final OkHttpClient probeClient;
+    private Disposable healthChecks;
+
+    public MinioEndpointRouter(@Value("${minio.endpoints:}") List<String> endpoints,
+                               @Value("${minio.routing.health-interval:10s}") Duration healthInterval,
+                               MeterRegistry meterRegistry) {
+        this.nodes = endpoints.stream()
+                .map(String::trim)
+                .filter(endpoint -> !endpoint.isEmpty())
+                .map(endpoint -> {
+                    HttpUrl url = HttpUrl.get(endpoint);
+                    return new Node(url, endpoint, new AtomicInteger(), new AtomicInteger(1));
+                })
+                .toList();
+        this.healthInterval = healthInterval;
+        this.probeClient = new OkHttpClient.Builder()
+                .connectTimeout(PROBE_TIMEOUT)
+                .readTimeout(PROBE_TIMEOUT)
+                .callTimeout(PROBE_TIMEOUT)
+                .build();
+        for (Node node : nodes) {
+            Gauge.builder("minio.endpoint.outstanding", node.outstanding(), AtomicInteger::get)
+                    .tag("endpoint", node.name())
+                    .register(meterRegistry);
+            Gauge.builder("minio.endpoint.healthy", node.healthy(), AtomicInteger::get)
+                    .tag("endpoint", node.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Whether requests are routed at all; with fewer than two endpoints they go to
+     * {@code minio.url} untouched.
+     */
+    public boolean isEnabled() {
+        return nodes.size() > 1;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (!isEnabled()) {
+            return chain.proceed(chain.request());
+        }
+        Request request = chain.request();
+        boolean idempotent = "GET".equals(request.method()) || "HEAD".equals(request.method());
+        IOException lastFailure = null;
+        for (int attempt = 0; attempt < nodes.size(); attempt++) {
+            Node node = pick(attempt > 0);
+            if (node == null) {
+                break;
+            }
+            node.outstanding().incrementAndGet();
+            Response response;
+            try {
+                response = chain.proceed(routeTo(request, node));
+            } catch (IOException e) {
+                node.outstanding().decrementAndGet();
+                lastFailure = e;
+                boolean notSent = e instanceof ConnectException || e instanceof NoRouteToHostException || e instanceof UnknownHostException;
+                if (notSent) {
+                    markDown(node, e);
+                }
+                if (!notSent && !idempotent) {
+                    throw e;
+                }
+                continue;
+            } catch (RuntimeException | Error e) {
+                node.outstanding().decrementAndGet();
+                throw e;
+            }
+            return countedUntilClosed(response, node);
+        }
+        throw lastFailure != null ? lastFailure : new ConnectException("No healthy MinIO endpoint");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        healthChecks = Flux.interval(Duration.ZERO, healthInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(nodes)
+                        .flatMap(node -> Mono.fromRunnable(() -> probe(node)).subscribeOn(Schedulers.boundedElastic()))
+                        .then(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (healthChecks != null) {
+            healthChecks.dispose();
+        }
+    }
+
+    // Least outstanding requests among healthy nodes; when all are down, any node, so a
+    // recovered cluster is noticed by traffic before the next probe
+    private Node pick(boolean retry) {
+        Node best = null;
+        for (Node node : nodes) {
+            if (node.healthy().get() == 1 && (best == null || node.outstanding().get() < best.outstanding().get())) {
+                best = node;
+            }
+        }
+        if (best == null && !retry) {
+            best = nodes.get(ThreadLocalRandom.current().nextInt(nodes.size()));
+        }
+        return best;
+    }
+
+    private void probe(Node node) {
+        Request probe = new Request.Builder().url(node.url().resolve("/minio/health/live")).get().build();
+        boolean healthy;
+        try (Response response = probeClient.newCall(probe).execute()) {
+            healthy = response.isSuccessful();
+        } catch (IOException e) {
+            healthy = false;
+        }
+        if (node.healthy().getAndSet(healthy ? 1 : 0) != (healthy ? 1 : 0)) {
+            log.info("MinIO endpoint {} is {}", node.name(), healthy ? "back up" : "down");
+        }
+    }
+
+    private void markDown(Node node, IOException e) {
+        if (node.healthy().getAndSet(0) == 1) {
+            log.warn("MinIO endpoint {} is down: {}", node.name(), e.getMessage());
+        }
+    }
+
+    // A download streams long after the headers are in, so the request stays outstanding
+    // on its node until the body is closed
+    private static Response countedUntilClosed(Response response, Node node) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            node.outstanding().decrementAndGet();
+            return response;
+        }
+        AtomicBoolean closed = new AtomicBoolean();
+        Source source = new ForwardingSource(body.source()) {
+            @Override
+            public void close() throws IOException {
+                if (closed.compareAndSet(false, true)) {
+                    node.outstanding().decrementAndGet();
+                }
+                super.close();
+            }
+        };
+        return response.newBuilder()
+                .body(ResponseBody.create(Okio.buffer(source), body.contentType(), body.contentLength()))
+                .build();
+    }
+
+    private static Request routeTo(Request request, Node node) {
+        String host = request.header("Host");
+        HttpUrl url = request.url().newBuilder()
+                .scheme(node.url().scheme())
+                .host(node.url().host())
+                .port(node.url().port())
+                .build();
+        Request.Builder routed = request.newBuilder().url(url);
+        // The signature covers the Host header of minio.url
+        routed.header("Host", host != null ? host : hostHeader(request.url()));
+        return routed.build();
+    }
+
+    private static String hostHeader(HttpUrl url) {
+        return url.port() == HttpUrl.defaultPort(url.scheme()) ? url.host() : url.host() + ":" + url.port();
+    }
+
+    private record Node(HttpUrl url, String name, AtomicInteger outstanding, AtomicInteger healthy) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.gbai.storage_ms.storage;
+
+import com.gbai.storage_ms.limit.AdaptiveConcurrencyLimiter;
+import com.gbai.storage_ms.metrics.CallTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking MinIO SDK calls on a dedicated, bounded scheduler so they never
+ * execute on the WebFlux event loop. Every call, including the non-blocking ones passed
+ * to {@link #timed}, gets the same timeout and is recorded in the {@code minio.calls}
+ * timers; the blocking ones are also counted in the saturation metrics. With a
+ * limiter, calls and listings only start while its adaptive limit has room; object
+ * bodies are not limited, as proxied downloads are admitted by their own cap.
+ */
+@Slf4j
+public class MinioIoExecutor {
+    private final Scheduler scheduler;
+    private final Duration timeout;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CallTimer calls;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public MinioIoExecutor(Scheduler scheduler, Duration timeout, MeterRegistry meterRegistry) {
+        this(scheduler, timeout, meterRegistry, null);
+    }
+
+    public MinioIoExecutor(Scheduler scheduler, Duration timeout, MeterRegistry meterRegistry, AdaptiveConcurrencyLimiter limiter) {
+        this.scheduler = scheduler;
+        this.timeout = timeout;
+        this.meterRegistry = meterRegistry;
+        this.calls = new CallTimer(meterRegistry, "minio.calls");
+        this.limiter = limiter;
+        Gauge.builder("minio.io.in-flight", inFlight, AtomicInteger::get)
+                .description("MinIO calls running or queued on the I/O scheduler")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> call(String operation, Callable<T> call) {
+        return limited(calls.record(operation, Mono.fromCallable(call)
+                .subscribeOn(scheduler)
+                .timeout(timeout)
+                .doOnSubscribe(s -> inFlight.incrementAndGet())
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .doOnError(RejectedExecutionException.class, e -> rejected(operation))
+                .doOnError(TimeoutException.class, e -> timedOut(operation))));
+    }
+
+    /**
+     * Records a MinIO call that does not block, such as an async client future, in the
+     * same timers and under the same timeout as the blocking ones.
+     */
+    public <T> Mono<T> timed(String operation, Mono<T> call) {
+        return limited(calls.record(operation, call
+                .timeout(timeout)
+                .doOnError(TimeoutException.class, e -> timedOut(operation))));
+    }
+
+    /**
+     * Streams a lazily paged SDK listing. Iterating it, and so every page request, runs
+     * on the I/O scheduler; the timeout applies to the wait for each element rather
+     * than to the whole listing.
+     */
+    public <T> Flux<T> stream(String operation, Callable<? extends Iterable<T>> listing) {
+        return limited(calls.record(operation, Flux.defer(() -> {
+                    try {
+                        return Flux.fromIterable(listing.call());
+                    } catch (Exception e) {
+                        return Flux.<T>error(e);
+                    }
+                })
+                .subscribeOn(scheduler)
+                .timeout(timeout)
+                .doOnSubscribe(s -> inFlight.incrementAndGet())
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .doOnError(RejectedExecutionException.class, e -> rejected(operation))
+                .doOnError(TimeoutException.class, e -> timedOut(operation))));
+    }
+
+    /**
+     * Streams an object body opened by {@code open} as buffers of up to
+     * {@code bufferSize} bytes. Opening and every read run on the I/O scheduler, and a
+     * buffer is only read when the subscriber requests one, so a slow consumer holds
+     * back MinIO instead of filling memory. No timeout applies, as a slow consumer
+     * legitimately pauses the stream; a stalled MinIO is cut off by the HTTP client's
+     * read timeout. The body is closed when the stream ends or is cancelled.
+     */
+    public Flux<DataBuffer> read(String operation, Callable<? extends InputStream> open, DataBufferFactory bufferFactory, int bufferSize) {
+        return calls.record(operation, DataBufferUtils.readInputStream(open::call, bufferFactory, bufferSize)
+                .subscribeOn(scheduler)
+                .doOnSubscribe(s -> inFlight.incrementAndGet())
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .doOnError(RejectedExecutionException.class, e -> rejected(operation)));
+    }
+
+    public Mono<Void> run(String operation, BlockingTask task) {
+        return call(operation, () -> {
+            task.run();
+            return Boolean.TRUE;
+        }).then();
+    }
+
+    private <T> Mono<T> limited(Mono<T> call) {
+        return limiter != null ? limiter.limit(call) : call;
+    }
+
+    private <T> Flux<T> limited(Flux<T> call) {
+        return limiter != null ? limiter.limit(call) : call;
+    }
+
+    private void rejected(String operation) {
+        counter("minio.io.rejected", operation).increment();
+        log.warn("MinIO I/O queue saturated, rejected {}", operation);
+    }
+
+    private void timedOut(String operation) {
+        counter("minio.io.timeouts", operation).increment();
+        log.warn("MinIO {} timed out after {}", operation, timeout);
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    public interface BlockingTask {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,48 @@
+package com.gbai.storage_ms.storage;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.ListPartsResponse;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.errors.MinioException;
+import io.minio.messages.Part;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exposes the S3 multipart primitives that {@link MinioAsyncClient} only offers to
+ * subclasses, so parts can be uploaded by clients through presigned URLs.
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public CompletableFuture<String> createMultipartUpload(String bucket, String region, String object, String contentType)
+            throws MinioException, GeneralSecurityException, IOException {
+        Multimap<String, String> headers = HashMultimap.create();
+        if (contentType != null) {
+            headers.put("Content-Type", contentType);
+        }
+        return createMultipartUploadAsync(bucket, region, object, headers, null)
+                .thenApply(response -> response.result().uploadId());
+    }
+
+    public CompletableFuture<ListPartsResponse> listParts(String bucket, String region, String object, String uploadId, int partNumberMarker)
+            throws MinioException, GeneralSecurityException, IOException {
+        return listPartsAsync(bucket, region, object, 1000, partNumberMarker, uploadId, null, null);
+    }
+
+    public CompletableFuture<ObjectWriteResponse> completeMultipartUpload(String bucket, String region, String object, String uploadId, Part[] parts)
+            throws MinioException, GeneralSecurityException, IOException {
+        return completeMultipartUploadAsync(bucket, region, object, uploadId, parts, null, null);
+    }
+
+    public CompletableFuture<Void> abortMultipartUpload(String bucket, String region, String object, String uploadId)
+            throws MinioException, GeneralSecurityException, IOException {
+        return abortMultipartUploadAsync(bucket, region, object, uploadId, null, null).thenApply(response -> null);
+    }
+}
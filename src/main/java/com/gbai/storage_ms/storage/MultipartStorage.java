@@ -0,0 +1,75 @@
+package com.gbai.storage_ms.storage;
+
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Reactive view of the S3 multipart upload lifecycle. Parts themselves are uploaded by
+ * clients with presigned URLs; this only creates, inspects, completes and aborts uploads.
+ */
+@Component
+public class MultipartStorage {
+    private final MultipartMinioClient multipartClient;
+    private final MinioIoExecutor minioIo;
+    private final String region;
+
+    public MultipartStorage(MultipartMinioClient multipartClient, MinioIoExecutor minioIo,
+                            @Value("${minio.region:us-east-1}") String region) {
+        this.multipartClient = multipartClient;
+        this.minioIo = minioIo;
+        this.region = region;
+    }
+
+    public Mono<String> createMultipartUpload(String bucket, String object, String contentType) {
+        return future("createMultipartUpload", () -> multipartClient.createMultipartUpload(bucket, region, object, contentType));
+    }
+
+    /**
+     * All parts uploaded so far, following the listing across pages of 1000 parts.
+     */
+    public Flux<Part> listParts(String bucket, String object, String uploadId) {
+        return listPartsPage(bucket, object, uploadId, 0)
+                .expand(page -> page.isTruncated()
+                        ? listPartsPage(bucket, object, uploadId, page.nextPartNumberMarker())
+                        : Mono.empty())
+                .flatMapIterable(ListPartsResult::partList);
+    }
+
+    public Mono<ObjectWriteResponse> completeMultipartUpload(String bucket, String object, String uploadId, List<Part> parts) {
+        return future("completeMultipartUpload", () -> multipartClient.completeMultipartUpload(bucket, region, object, uploadId, parts.toArray(new Part[0])));
+    }
+
+    public Mono<Void> abortMultipartUpload(String bucket, String object, String uploadId) {
+        return future("abortMultipartUpload", () -> multipartClient.abortMultipartUpload(bucket, region, object, uploadId));
+    }
+
+    private Mono<ListPartsResult> listPartsPage(String bucket, String object, String uploadId, int partNumberMarker) {
+        return future("listParts", () -> multipartClient.listParts(bucket, region, object, uploadId, partNumberMarker))
+                .map(response -> response.result());
+    }
+
+    private <T> Mono<T> future(String operation, AsyncCall<T> call) {
+        return minioIo.timed(operation, Mono.defer(() -> {
+                    try {
+                        return Mono.fromFuture(call.start());
+                    } catch (Exception e) {
+                        return Mono.error(e);
+                    }
+                })
+                .onErrorMap(CompletionException.class, e -> e.getCause() != null ? e.getCause() : e));
+    }
+
+    @FunctionalInterface
+    private interface AsyncCall<T> {
+        CompletableFuture<T> start() throws Exception;
+    }
+}
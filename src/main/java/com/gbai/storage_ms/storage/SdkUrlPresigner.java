@@ -0,0 +1,27 @@
+package com.gbai.storage_ms.storage;
+
+import io.minio.http.Method;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Presigns through the MinIO SDK of the active backend. The SDK always signs for the
+ * current time, so {@code signedAt} is ignored.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "minio.presign.mode", havingValue = "sdk", matchIfMissing = true)
+public class SdkUrlPresigner implements UrlPresigner {
+    private final StorageBackend storageBackend;
+
+    @Override
+    public Mono<String> presign(Method method, String bucket, String object, int expirySeconds, Instant signedAt,
+                                Map<String, String> extraQueryParams) {
+        return storageBackend.presignedUrl(method, bucket, object, expirySeconds, extraQueryParams);
+    }
+}
@@ -0,0 +1,57 @@
+package com.gbai.storage_ms.storage;
+
+import io.minio.StatObjectResponse;
+import io.minio.http.Method;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Object storage operations used by the service, exposed as Reactor publishers.
+ * Implementations decide how the underlying MinIO client is driven; callers never
+ * block and never see the SDK's checked exceptions.
+ */
+public interface StorageBackend {
+    Flux<String> listBuckets();
+
+    Mono<Boolean> bucketExists(String bucket);
+
+    Mono<Void> makeBucket(String bucket);
+
+    Mono<String> presignedUrl(Method method, String bucket, String object, int expirySeconds, Map<String, String> extraQueryParams);
+
+    Mono<StatObjectResponse> statObject(String bucket, String object);
+
+    Mono<Void> removeObject(String bucket, String object);
+
+    /**
+     * Streams {@code length} bytes of an object starting at {@code offset} (null length:
+     * to the end) as buffers of up to {@code bufferSize} bytes from {@code bufferFactory},
+     * reading from MinIO only as buffers are requested.
+     */
+    Flux<DataBuffer> getObject(String bucket, String object, long offset, Long length, DataBufferFactory bufferFactory, int bufferSize);
+
+    /**
+     * Deletes up to 1000 objects of one bucket with a single multi-object delete and
+     * emits the names of the objects that could not be removed.
+     */
+    Mono<List<String>> removeObjects(String bucket, List<String> objects);
+
+    /**
+     * Streams every object of a bucket in key order (UTF-8 binary order, as S3 lists
+     * them), fetching the listing page by page as it is consumed.
+     */
+    default Flux<StoredObject> listObjects(String bucket) {
+        return listObjects(bucket, null);
+    }
+
+    /**
+     * Like {@link #listObjects(String)} but only the keys after {@code startAfter}; null
+     * lists from the start.
+     */
+    Flux<StoredObject> listObjects(String bucket, String startAfter);
+}
@@ -0,0 +1,17 @@
+package com.gbai.storage_ms.storage;
+
+import io.minio.Result;
+import io.minio.messages.Item;
+
+import java.time.Instant;
+
+/**
+ * One entry of a bucket listing.
+ */
+public record StoredObject(String name, long size, String etag, Instant lastModified) {
+    static StoredObject of(Result<Item> result) throws Exception {
+        Item item = result.get();
+        return new StoredObject(item.objectName(), item.size(), item.etag(),
+                item.lastModified() == null ? null : item.lastModified().toInstant());
+    }
+}
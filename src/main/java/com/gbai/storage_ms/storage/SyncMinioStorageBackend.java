@@ -0,0 +1,116 @@
+package com.gbai.storage_ms.storage;
+
+import io.minio.BucketExistsArgs;
+import io.minio.GetObjectArgs;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListObjectsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.http.Method;
+import io.minio.messages.Bucket;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backend on the blocking {@link MinioClient}; each call occupies a thread of the
+ * MinIO I/O scheduler for its whole round trip.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "minio.backend", havingValue = "sync", matchIfMissing = true)
+public class SyncMinioStorageBackend implements StorageBackend {
+    private final MinioClient minioClient;
+    private final MinioIoExecutor minioIo;
+
+    @Override
+    public Flux<String> listBuckets() {
+        return minioIo.call("listBuckets", minioClient::listBuckets)
+                .flatMapIterable(buckets -> buckets)
+                .map(Bucket::name);
+    }
+
+    @Override
+    public Mono<Boolean> bucketExists(String bucket) {
+        return minioIo.call("bucketExists", () ->
+                minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build()));
+    }
+
+    @Override
+    public Mono<Void> makeBucket(String bucket) {
+        return minioIo.run("makeBucket", () ->
+                minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build()));
+    }
+
+    @Override
+    public Mono<String> presignedUrl(Method method, String bucket, String object, int expirySeconds, Map<String, String> extraQueryParams) {
+        return minioIo.call("presign" + method, () -> minioClient.getPresignedObjectUrl(
+                GetPresignedObjectUrlArgs.builder()
+                        .method(method)
+                        .bucket(bucket)
+                        .object(object)
+                        .expiry(expirySeconds)
+                        .extraQueryParams(extraQueryParams)
+                        .build()));
+    }
+
+    @Override
+    public Mono<StatObjectResponse> statObject(String bucket, String object) {
+        return minioIo.call("statObject", () ->
+                minioClient.statObject(StatObjectArgs.builder().bucket(bucket).object(object).build()));
+    }
+
+    @Override
+    public Mono<Void> removeObject(String bucket, String object) {
+        return minioIo.run("removeObject", () ->
+                minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(object).build()));
+    }
+
+    @Override
+    public Flux<DataBuffer> getObject(String bucket, String object, long offset, Long length, DataBufferFactory bufferFactory, int bufferSize) {
+        return minioIo.read("getObject", () -> minioClient.getObject(
+                GetObjectArgs.builder().bucket(bucket).object(object).offset(offset).length(length).build()), bufferFactory, bufferSize);
+    }
+
+    @Override
+    public Mono<List<String>> removeObjects(String bucket, List<String> objects) {
+        return minioIo.call("removeObjects", () -> {
+            List<DeleteObject> toDelete = new ArrayList<>(objects.size());
+            objects.forEach(object -> toDelete.add(new DeleteObject(object)));
+            List<String> failed = new ArrayList<>();
+            for (Result<DeleteError> result : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(bucket).objects(toDelete).build())) {
+                failed.add(result.get().objectName());
+            }
+            return failed;
+        });
+    }
+
+    @Override
+    public Flux<StoredObject> listObjects(String bucket, String startAfter) {
+        return minioIo.stream("listObjects", () -> minioClient.listObjects(
+                        ListObjectsArgs.builder().bucket(bucket).startAfter(startAfter).recursive(true).build()))
+                .handle((result, sink) -> {
+                    try {
+                        sink.next(StoredObject.of(result));
+                    } catch (Exception e) {
+                        sink.error(e);
+                    }
+                });
+    }
+}
@@ -0,0 +1,23 @@
+package com.gbai.storage_ms.storage;
+
+import io.minio.http.Method;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Produces presigned object URLs. {@code signedAt} is the timestamp the signature is
+ * issued for; implementations that cannot choose it sign for the current time.
+ */
+public interface UrlPresigner {
+    default Mono<String> presign(Method method, String bucket, String object, int expirySeconds, Instant signedAt) {
+        return presign(method, bucket, object, expirySeconds, signedAt, Map.of());
+    }
+
+    /**
+     * Presigns with additional signed query parameters, e.g. {@code partNumber} and
+     * {@code uploadId} for a multipart part upload.
+     */
+    Mono<String> presign(Method method, String bucket, String object, int expirySeconds, Instant signedAt, Map<String, String> extraQueryParams);
+}
@@ -1,18 +1,35 @@
 package com.gbai.storage_ms.controller;
 
+import com.gbai.storage_ms.limit.LoadShedException;
 import com.gbai.storage_ms.model.ApiResponse;
+import com.gbai.storage_ms.model.BatchUploadItem;
+import com.gbai.storage_ms.model.BatchUploadRequest;
+import com.gbai.storage_ms.model.DeletionSummary;
 import com.gbai.storage_ms.model.PresignedUrlResponse;
+import com.gbai.storage_ms.model.StorageStats;
+import com.gbai.storage_ms.model.UploadFileRequest;
+import com.gbai.storage_ms.model.VideoPage;
 import com.gbai.storage_ms.service.StorageService;
+import com.gbai.storage_ms.service.StorageStatistics;
+import com.gbai.storage_ms.service.UploadTracker;
+import com.gbai.storage_ms.service.VideoStreamer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
@@ -23,6 +40,12 @@ class StorageControllerTest {
 
     @MockBean
     private StorageService storageService;
+    @MockBean
+    private UploadTracker uploadTracker;
+    @MockBean
+    private StorageStatistics storageStatistics;
+    @MockBean
+    private VideoStreamer videoStreamer;
 
     private PresignedUrlResponse presignedUrlResponse;
 
@@ -33,7 +56,7 @@ class StorageControllerTest {
 
     @Test
     void testGetPresignedUploadUrl() {
-        when(storageService.generatePresignedUploadUrl(any(), any(), any(), any(), any(Long.class)))
+        when(storageService.generatePresignedUploadUrl(any(), any(), any(), any(), any(Long.class), any()))
                 .thenReturn(Mono.just(presignedUrlResponse));
 
         webTestClient.post()
@@ -53,6 +76,29 @@ class StorageControllerTest {
                 });
     }
 
+    @Test
+    void testGetPresignedUploadUrlsBatch() {
+        when(storageService.generatePresignedUploadUrls(eq("comp1"), eq("user1"), anyList()))
+                .thenReturn(Mono.just(List.of(
+                        new BatchUploadItem(0, "a.mp4", presignedUrlResponse, null),
+                        new BatchUploadItem(1, "", null, "originalFilename and a positive fileSize are required"))));
+
+        BatchUploadRequest request = new BatchUploadRequest("comp1", "user1", List.of(
+                new UploadFileRequest("a.mp4", "video/mp4", 100),
+                new UploadFileRequest("", "video/mp4", 0)));
+
+        webTestClient.post()
+                .uri("/storage/presigned-upload/batch")
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(200)
+                .jsonPath("$.message").isEqualTo("1 of 2 presigned upload URLs generated")
+                .jsonPath("$.data[0].upload.url").isEqualTo("http://minio/presigned")
+                .jsonPath("$.data[1].error").exists();
+    }
+
     @Test
     void testGetPresignedDownloadUrl() {
         when(storageService.generatePresignedDownloadUrl(eq("vid1")))
@@ -85,6 +131,50 @@ class StorageControllerTest {
                 });
     }
 
+    @Test
+    void testListVideosForCompetitionPage() {
+        when(storageService.listPresignedDownloadUrlsPage(eq("comp1"), eq("abc"), eq(2)))
+                .thenReturn(Mono.just(new VideoPage(List.of(presignedUrlResponse), "next")));
+
+        webTestClient.get()
+                .uri("/storage/competition/comp1/videos/page?cursor=abc&limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(200)
+                .jsonPath("$.data.items[0].fileId").isEqualTo("vid1")
+                .jsonPath("$.data.nextCursor").isEqualTo("next");
+    }
+
+    @Test
+    void testInvalidPageLimitIsABadRequest() {
+        when(storageService.listPresignedDownloadUrlsPage(eq("comp1"), any(), eq(0)))
+                .thenReturn(Mono.error(new IllegalArgumentException("limit must be between 1 and 500")));
+
+        webTestClient.get()
+                .uri("/storage/competition/comp1/videos/page?limit=0")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.message").isEqualTo("limit must be between 1 and 500");
+    }
+
+    @Test
+    void testStreamVideosForCompetitionAsNdjson() {
+        when(storageService.listPresignedDownloadUrlsForCompetition(eq("comp1")))
+                .thenReturn(Flux.just(presignedUrlResponse, presignedUrlResponse));
+
+        webTestClient.get()
+                .uri("/storage/competition/comp1/videos/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(PresignedUrlResponse.class)
+                .hasSize(2);
+    }
+
     @Test
     void testDeleteVideo() {
         when(storageService.deleteVideo(eq("vid1"))).thenReturn(Mono.empty());
@@ -100,6 +190,47 @@ class StorageControllerTest {
                 });
     }
 
+    @Test
+    void testDeleteCompetitionVideos() {
+        when(storageService.deleteCompetitionVideos(eq("comp1")))
+                .thenReturn(Mono.just(new DeletionSummary(3, 2, 1)));
+
+        webTestClient.delete()
+                .uri("/storage/competition/comp1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(200)
+                .jsonPath("$.data.deleted").isEqualTo(2)
+                .jsonPath("$.data.failed").isEqualTo(1);
+    }
+
+    @Test
+    void testGetCompetitionStats() {
+        when(storageStatistics.competition("comp1"))
+                .thenReturn(Mono.just(new StorageStats("competition:comp1", StorageStats.COMPETITION, "comp1", 4, 4096, null)));
+
+        webTestClient.get()
+                .uri("/storage/stats/competition/comp1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.data.videos").isEqualTo(4)
+                .jsonPath("$.data.bytes").isEqualTo(4096);
+    }
+
+    @Test
+    void testVerifyVideoUploadReportsShedLoad() {
+        when(storageService.verifyVideoUpload(eq("vid1")))
+                .thenReturn(Mono.error(new LoadShedException("minio is saturated", HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(2))));
+
+        webTestClient.get()
+                .uri("/storage/verify/vid1")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+    }
+
     @Test
     void testVerifyVideoUpload() {
         when(storageService.verifyVideoUpload(eq("vid1")))
@@ -116,4 +247,17 @@ class StorageControllerTest {
                     assert (Boolean) apiResp.getData() == true;
                 });
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testMinioNotificationRejectsWrongToken() {
+        when(uploadTracker.acceptsWebhook(eq("Bearer wrong"))).thenReturn(false);
+
+        webTestClient.post()
+                .uri("/storage/notifications/minio")
+                .header("Authorization", "Bearer wrong")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"Records\": []}")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+}
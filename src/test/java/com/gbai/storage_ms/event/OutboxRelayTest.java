@@ -0,0 +1,136 @@
+package com.gbai.storage_ms.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gbai.storage_ms.model.ReconcileCheckpoint;
+import com.gbai.storage_ms.repository.OutboxEventRepository;
+import com.gbai.storage_ms.repository.ReconcileCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+    @Mock
+    private OutboxEventRepository outboxRepository;
+    @Mock
+    private ReconcileCheckpointRepository leaseRepository;
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outboxRepository, leaseRepository, kafkaTemplate, new ObjectMapper(), new SimpleMeterRegistry(),
+                "video-events", 2, Duration.ofMillis(200), Duration.ofDays(7), Duration.ofSeconds(30));
+        lenient().when(leaseRepository.acquire(eq(OutboxRelay.LEASE_ID), any(), any(), any()))
+                .thenReturn(Mono.just(new ReconcileCheckpoint()));
+    }
+
+    @Test
+    void testDrainMarksOnlyAcknowledgedEventsSent() {
+        OutboxEvent ok = event("evt1", "vid1");
+        OutboxEvent broken = event("evt2", "vid2");
+        when(outboxRepository.findPending(2)).thenReturn(Flux.just(ok, broken)).thenReturn(Flux.empty());
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, String> record = invocation.getArgument(0);
+            return "vid1".equals(record.key())
+                    ? CompletableFuture.completedFuture(mock(SendResult.class))
+                    : CompletableFuture.failedFuture(new IllegalStateException("broker down"));
+        });
+        when(outboxRepository.markSent(eq(List.of("evt1")), any())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(outboxRepository).markSent(eq(List.of("evt1")), any());
+    }
+
+    @Test
+    void testDrainHoldsBackEventsAfterAFailedOneOfTheSameVideo() {
+        when(outboxRepository.findPending(2)).thenReturn(Flux.just(event("evt1", "vid1"), event("evt2", "vid1")));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(kafkaTemplate, times(1)).send(any(ProducerRecord.class));
+        verify(outboxRepository, never()).markSent(any(), any());
+    }
+
+    @Test
+    void testDrainParksEventsThatCannotBeSerialized() throws Exception {
+        ObjectMapper objectMapper = mock(ObjectMapper.class);
+        relay = new OutboxRelay(outboxRepository, leaseRepository, kafkaTemplate, objectMapper, new SimpleMeterRegistry(),
+                "video-events", 2, Duration.ofMillis(200), Duration.ofDays(7), Duration.ofSeconds(30));
+        OutboxEvent broken = event("evt1", "vid1");
+        OutboxEvent ok = event("evt2", "vid1");
+        when(objectMapper.writeValueAsString(any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == broken.getEvent()) {
+                throw new JsonProcessingException("unserializable") {};
+            }
+            return "{}";
+        });
+        when(outboxRepository.findPending(2)).thenReturn(Flux.just(broken, ok)).thenReturn(Flux.empty());
+        when(outboxRepository.markFailed(eq("evt1"), any(), any())).thenReturn(Mono.empty());
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> CompletableFuture.completedFuture(mock(SendResult.class)));
+        when(outboxRepository.markSent(eq(List.of("evt2")), any())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(outboxRepository).markFailed(eq("evt1"), eq("unserializable"), any());
+    }
+
+    @Test
+    void testDrainKeepsGoingWhileBatchesAreFull() {
+        when(outboxRepository.findPending(anyInt()))
+                .thenReturn(Flux.just(event("evt1", "vid1"), event("evt2", "vid2")))
+                .thenReturn(Flux.just(event("evt3", "vid3")));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> CompletableFuture.completedFuture(mock(SendResult.class)));
+        when(outboxRepository.markSent(any(), any())).thenAnswer(invocation -> Mono.just((long) ((List<?>) invocation.getArgument(0)).size()));
+
+        StepVerifier.create(relay.drain())
+                .expectNext(3L)
+                .verifyComplete();
+
+        verify(outboxRepository, times(2)).findPending(2);
+    }
+
+    @Test
+    void testDrainRelaysNothingWhileAnotherInstanceHoldsTheLease() {
+        when(leaseRepository.acquire(eq(OutboxRelay.LEASE_ID), any(), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(relay.drain())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(outboxRepository, never()).findPending(anyInt());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    private static OutboxEvent event(String id, String videoId) {
+        VideoEvent payload = new VideoEvent(VideoEvent.VIDEO_UPLOADED, videoId, "comp1", "user1", "video.mp4", 0L);
+        return new OutboxEvent(id, videoId, payload, null, null, null, null);
+    }
+}
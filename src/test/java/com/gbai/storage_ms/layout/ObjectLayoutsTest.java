@@ -0,0 +1,63 @@
+package com.gbai.storage_ms.layout;
+
+import com.gbai.storage_ms.model.VideoMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectLayoutsTest {
+    private static final String FILE_ID = "0b7e4a52-8c1e-4d2a-9a57-3f1f2c9d7e10";
+
+    private final ObjectLayouts shared = new ObjectLayouts(SharedBucketLayout.NAME, "videos");
+
+    @Test
+    void testSharedKeysAreHashPrefixedAndResolveBackToTheFileId() {
+        ObjectLayout layout = shared.current();
+        String key = layout.objectKey("comp1", FILE_ID, "final round.mp4");
+
+        assertEquals("videos", layout.bucket("comp1"));
+        assertTrue(key.matches("[0-9a-f]{4}/comp1/" + FILE_ID), key);
+        assertEquals(FILE_ID, shared.fileId("videos", key));
+        assertNull(shared.fileId("other", key));
+        assertNull(shared.fileId("videos", "0000/comp1/" + FILE_ID.replace('0', '1')));
+    }
+
+    @Test
+    void testSharedKeysSpreadOverPrefixes() {
+        Set<String> prefixes = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            prefixes.add(shared.current().objectKey("comp1", UUID.randomUUID().toString(), "a.mp4").substring(0, 4));
+        }
+        assertTrue(prefixes.size() > 950, () -> prefixes.size() + " distinct prefixes");
+    }
+
+    @Test
+    void testCompetitionBucketObjectsStillResolve() {
+        assertEquals(FILE_ID, shared.fileId("competition-comp1", FILE_ID + "-final round.mp4"));
+        assertEquals("comp1", shared.competitionOfBucket("competition-comp1"));
+        assertNull(shared.competitionOfBucket("videos"));
+        assertTrue(shared.holdsVideos("videos"));
+        assertFalse(shared.holdsVideos("backups"));
+    }
+
+    @Test
+    void testDocumentsWithoutRecordedBucketAreInTheirCompetitionBucket() {
+        VideoMetadata legacy = new VideoMetadata();
+        legacy.setCompetitionId("comp1");
+        VideoMetadata moved = new VideoMetadata();
+        moved.setCompetitionId("comp1");
+        moved.setBucket("videos");
+
+        assertEquals("competition-comp1", shared.bucketOf(legacy));
+        assertEquals("videos", shared.bucketOf(moved));
+    }
+
+    @Test
+    void testUnknownModeIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new ObjectLayouts("flat", "videos"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.gbai.storage_ms.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AdaptiveConcurrencyLimiter("minio", new SimpleMeterRegistry(), 10, 2, 20, Duration.ofMillis(100),
+                0.5, 0.5, Duration.ofMillis(50), Duration.ofSeconds(1), TimeoutException.class::isInstance, nanos::get);
+    }
+
+    @Test
+    void testFastCallsGrowTheLimitWhileItIsUsed() {
+        for (int i = 0; i < 100; i++) {
+            limiter.release(9, nanos.get(), false);
+        }
+
+        assertEquals(17, limiter.getLimit());
+    }
+
+    @Test
+    void testFastCallsOnAnIdleLimitLeaveIt() {
+        for (int i = 0; i < 100; i++) {
+            limiter.release(0, nanos.get(), false);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testSlowCallsShrinkTheLimitOncePerWindow() {
+        long started = nanos.get();
+        nanos.addAndGet(Duration.ofMillis(150).toNanos());
+        limiter.release(0, started, false);
+        limiter.release(0, started, false);
+        assertEquals(5, limiter.getLimit());
+
+        nanos.addAndGet(Duration.ofMillis(100).toNanos());
+        limiter.release(0, nanos.get(), true);
+        limiter.release(0, nanos.get(), true);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testOverloadErrorShrinksTheLimit() {
+        StepVerifier.create(limiter.limit(Mono.error(new TimeoutException())))
+                .expectError(TimeoutException.class)
+                .verify();
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testCallCancelledAfterSlowCallShrinksTheLimit() {
+        StepVerifier.create(limiter.limit(Mono.never()))
+                .then(() -> nanos.addAndGet(Duration.ofMillis(150).toNanos()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testCallCancelledEarlyLeavesTheLimit() {
+        StepVerifier.create(limiter.limit(Mono.never()))
+                .then(() -> nanos.addAndGet(Duration.ofMillis(10).toNanos()))
+                .thenCancel()
+                .verify();
+
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testCallsCancelledEarlyReturnTheirPermits() {
+        for (int i = 0; i < 20; i++) {
+            StepVerifier.create(limiter.limit(Mono.never()).timeout(Duration.ofMillis(1)))
+                    .expectError(TimeoutException.class)
+                    .verify(Duration.ofSeconds(5));
+            StepVerifier.create(limiter.limit(Flux.never()).take(Duration.ofMillis(1)))
+                    .verifyComplete();
+        }
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testBulkWorkIsHeldToItsShare() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(Priority.BULK) >= 0);
+        }
+        assertEquals(-1, limiter.tryAcquire(Priority.BULK));
+        assertTrue(limiter.tryAcquire(Priority.INTERACTIVE) >= 0);
+
+        StepVerifier.create(limiter.limit(Mono.just("stat")).contextWrite(Priority.BULK::into))
+                .expectError(LoadShedException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testInteractiveCallsOverTheLimitAreShedAtOnce() {
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(Priority.INTERACTIVE);
+        }
+
+        StepVerifier.create(limiter.limit(Mono.just("stat")))
+                .expectErrorMatches(e -> e instanceof LoadShedException shed && shed.getRetryAfter().equals(Duration.ofSeconds(1)))
+                .verify();
+    }
+}
@@ -0,0 +1,111 @@
+package com.gbai.storage_ms.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for the S3 API calls the service makes outside of presigning:
+ * bucket checks and creation, bucket listing, object stat and removal, multi-object
+ * delete and object listing. Every bucket exists and is empty, every object exists,
+ * and every delete succeeds. Each request is answered after a fixed latency to
+ * imitate a remote MinIO.
+ */
+final class S3Stub implements AutoCloseable {
+    private static final String XMLNS = "http://s3.amazonaws.com/doc/2006-03-01/";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Duration latency;
+
+    private S3Stub(HttpServer server, ExecutorService executor, Duration latency) {
+        this.server = server;
+        this.executor = executor;
+        this.latency = latency;
+    }
+
+    static S3Stub start(Duration latency, int threads) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        S3Stub stub = new S3Stub(server, executor, latency);
+        server.createContext("/", stub::handle);
+        server.setExecutor(executor);
+        server.start();
+        return stub;
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+            pause();
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery() == null ? "" : exchange.getRequestURI().getRawQuery();
+            String bucket = path.length() > 1 ? path.substring(1).split("/", 2)[0] : "";
+            boolean objectPath = path.indexOf('/', 1) > 0 && path.indexOf('/', 1) < path.length() - 1;
+
+            if ("GET".equals(method) && bucket.isEmpty()) {
+                xml(exchange, 200, "<ListAllMyBucketsResult xmlns=\"" + XMLNS + "\"><Owner><ID>stub</ID><DisplayName>stub</DisplayName></Owner>"
+                        + "<Buckets></Buckets></ListAllMyBucketsResult>");
+            } else if ("POST".equals(method) && query.contains("delete")) {
+                xml(exchange, 200, "<DeleteResult xmlns=\"" + XMLNS + "\"></DeleteResult>");
+            } else if ("GET".equals(method) && !objectPath && query.contains("location")) {
+                xml(exchange, 200, "<LocationConstraint xmlns=\"" + XMLNS + "\"></LocationConstraint>");
+            } else if ("GET".equals(method) && !objectPath) {
+                xml(exchange, 200, "<ListBucketResult xmlns=\"" + XMLNS + "\"><Name>" + bucket + "</Name><Prefix></Prefix>"
+                        + "<KeyCount>0</KeyCount><MaxKeys>1000</MaxKeys><IsTruncated>false</IsTruncated></ListBucketResult>");
+            } else if ("HEAD".equals(method) && objectPath) {
+                exchange.getResponseHeaders().add("ETag", "\"d41d8cd98f00b204e9800998ecf8427e\"");
+                exchange.getResponseHeaders().add("Last-Modified", "Mon, 01 Jan 2024 00:00:00 GMT");
+                exchange.getResponseHeaders().add("Content-Type", "video/mp4");
+                exchange.getResponseHeaders().add("Content-Length", "0");
+                exchange.sendResponseHeaders(200, -1);
+            } else if ("DELETE".equals(method)) {
+                exchange.sendResponseHeaders(204, -1);
+            } else if ("HEAD".equals(method) || "PUT".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                xml(exchange, 501, "<Error><Code>NotImplemented</Code><Message>" + method + " " + path
+                        + " is not stubbed</Message></Error>");
+            }
+        }
+    }
+
+    private void pause() {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency.toMillis(), latency.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void xml(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.gbai.storage_ms.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a mixed workload against the whole application at a fixed arrival rate:
+ * upload URLs, download URLs, status checks, paged listings and competition cascade
+ * deletes. Mongo runs in a container and MinIO is replaced by {@link S3Stub}, whose
+ * latency is configurable. Only runs with {@code -Dloadtest=true}.
+ *
+ * <p>Latency is measured from when a request was due, not when it was sent, so a
+ * saturated service shows up as queueing instead of being hidden (coordinated
+ * omission). Per-operation HdrHistogram percentile distributions are printed and
+ * written to {@code target/loadtest/<label>/}.
+ *
+ * <p>Tuning: {@code loadtest.rate} (requests/s, default 200), {@code loadtest.duration}
+ * (default 30s), {@code loadtest.s3-latency} (default 5ms), {@code loadtest.competitions}
+ * (default 20) and {@code loadtest.label}. Modes are compared by passing the service's
+ * own properties, e.g. {@code -Dminio.backend=async}, {@code -Dstorage.metadata.mode=write-behind}
+ * or {@code -Dstorage.metadata-cache.enabled=false}.
+ */
+@Testcontainers
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "minio.access-key=loadtest-access-key",
+        "minio.secret-key=loadtest-secret-key",
+        "storage.reconcile.enabled=false",
+        "storage.outbox.relay.enabled=false",
+        "storage.notifications.kafka.enabled=false",
+        "storage.metadata-cache.invalidation.kafka.enabled=false"
+})
+class StorageLoadTest {
+    private static final long HIGHEST_TRACKABLE_NANOS = Duration.ofMinutes(1).toNanos();
+
+    @Container
+    private static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static S3Stub s3;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @DynamicPropertySource
+    static void stores(DynamicPropertyRegistry registry) throws IOException {
+        s3 = S3Stub.start(DurationStyle.detectAndParse(System.getProperty("loadtest.s3-latency", "5ms")), 64);
+        registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("storagedb"));
+        registry.add("minio.url", s3::endpoint);
+    }
+
+    @AfterAll
+    static void stopS3() {
+        if (s3 != null) {
+            s3.close();
+        }
+    }
+
+    @Test
+    void mixedWorkload() throws IOException {
+        int rate = Integer.getInteger("loadtest.rate", 200);
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "30s"));
+        int competitions = Integer.getInteger("loadtest.competitions", 20);
+        String label = System.getProperty("loadtest.label", "default");
+        WebClient client = webClientBuilder.baseUrl("http://localhost:" + port + "/storage").build();
+        List<String> videoIds = new ArrayList<>();
+
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        operations.put("upload-url", new Operation(40, () -> client.post()
+                .uri(uri -> uri.path("/presigned-upload")
+                        .queryParam("competitionId", competition(competitions))
+                        .queryParam("uploaderId", "user-" + ThreadLocalRandom.current().nextInt(1000))
+                        .queryParam("originalFilename", "match.mp4")
+                        .queryParam("contentType", "video/mp4")
+                        .queryParam("fileSize", 52_428_800L)
+                        .build())
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .doOnNext(response -> remember(videoIds, response.path("data").path("fileId").asText()))));
+        operations.put("download-url", new Operation(25, () -> withVideo(videoIds, id -> client.get()
+                .uri("/presigned-download/{id}", id)
+                .retrieve()
+                .toBodilessEntity())));
+        operations.put("verify", new Operation(15, () -> withVideo(videoIds, id -> client.get()
+                .uri("/verify/{id}", id)
+                .retrieve()
+                .toBodilessEntity())));
+        operations.put("list-page", new Operation(18, () -> client.get()
+                .uri("/competition/{id}/videos/page?limit=50", competition(competitions))
+                .retrieve()
+                .toBodilessEntity()));
+        operations.put("cascade-delete", new Operation(2, () -> client.delete()
+                .uri("/competition/{id}", competition(competitions))
+                .retrieve()
+                .toBodilessEntity()));
+
+        run(operations, rate, duration.dividedBy(10));
+        operations.values().forEach(Operation::reset);
+        run(operations, rate, duration);
+
+        Path output = Path.of("target", "loadtest", label);
+        Files.createDirectories(output);
+        long total = 0;
+        long failed = 0;
+        System.out.printf("%nLoad test '%s': %d req/s for %s, S3 latency %s%n", label, rate, duration,
+                System.getProperty("loadtest.s3-latency", "5ms"));
+        System.out.printf("%-15s %8s %7s %9s %9s %9s %9s %9s%n", "operation", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, Operation> entry : operations.entrySet()) {
+            Histogram histogram = entry.getValue().latencies;
+            total += histogram.getTotalCount() + entry.getValue().errors.get();
+            failed += entry.getValue().errors.get();
+            System.out.printf("%-15s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), histogram.getTotalCount(),
+                    entry.getValue().errors.get(), millis(histogram, 50), millis(histogram, 90), millis(histogram, 99),
+                    millis(histogram, 99.9), histogram.getMaxValue() / 1e6);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(output.resolve(entry.getKey() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(out, 1e6);
+            }
+        }
+        assertTrue(total > 0 && failed <= total / 100, failed + " of " + total + " requests failed");
+    }
+
+    /**
+     * Issues requests at a constant arrival rate regardless of how quickly they
+     * complete, picking each one's operation by weight.
+     */
+    private static void run(Map<String, Operation> operations, int rate, Duration duration) {
+        List<Operation> weighted = new ArrayList<>();
+        operations.values().forEach(operation -> {
+            for (int i = 0; i < operation.weight; i++) {
+                weighted.add(operation);
+            }
+        });
+        long periodNanos = 1_000_000_000L / rate;
+        long requests = duration.toNanos() / periodNanos;
+        long startNanos = System.nanoTime();
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(requests)
+                .onBackpressureBuffer()
+                .flatMap(tick -> {
+                    Operation operation = weighted.get(ThreadLocalRandom.current().nextInt(weighted.size()));
+                    long dueNanos = startNanos + (tick + 1) * periodNanos;
+                    return operation.call.get()
+                            .doOnSuccess(result -> operation.latencies.recordValue(
+                                    Math.min(System.nanoTime() - dueNanos, HIGHEST_TRACKABLE_NANOS)))
+                            .onErrorResume(e -> {
+                                operation.errors.incrementAndGet();
+                                return Mono.empty();
+                            });
+                }, Integer.MAX_VALUE)
+                .blockLast(duration.plusMinutes(1));
+    }
+
+    private static Mono<?> withVideo(List<String> videoIds, Function<String, Mono<?>> call) {
+        String id;
+        synchronized (videoIds) {
+            if (videoIds.isEmpty()) {
+                return Mono.empty();
+            }
+            id = videoIds.get(ThreadLocalRandom.current().nextInt(videoIds.size()));
+        }
+        return call.apply(id);
+    }
+
+    private static void remember(List<String> videoIds, String id) {
+        synchronized (videoIds) {
+            videoIds.add(id);
+        }
+    }
+
+    private static String competition(int competitions) {
+        return "load-" + ThreadLocalRandom.current().nextInt(competitions);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private static final class Operation {
+        private final int weight;
+        private final Supplier<Mono<?>> call;
+        private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        Operation(int weight, Supplier<Mono<?>> call) {
+            this.weight = weight;
+            this.call = call;
+        }
+
+        void reset() {
+            latencies.reset();
+            errors.set(0);
+        }
+    }
+}
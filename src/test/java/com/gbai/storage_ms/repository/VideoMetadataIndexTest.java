@@ -0,0 +1,103 @@
+package com.gbai.storage_ms.repository;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks with explain() that the hot metadata queries are answered from the declared
+ * indexes rather than a collection scan.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class VideoMetadataIndexTest {
+    @Container
+    private static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(mongo.getReplicaSetUrl());
+        mongoTemplate = new ReactiveMongoTemplate(client, "storagedb");
+        new VideoMetadataRepositoryCustomImpl(mongoTemplate, Duration.ofSeconds(5)).ensureIndexes().block();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void competitionPageUsesCompetitionUploadTimeIndex() {
+        Document plan = winningPlan(new Document("competitionId", "comp1"),
+                new Document("uploadTimestamp", 1).append("_id", 1));
+
+        assertUsesIndex(plan, "competition_upload_time");
+    }
+
+    @Test
+    void competitionObjectsUseCompetitionObjectIndex() {
+        Document plan = winningPlan(new Document("competitionId", "comp1").append("storedFilename", new Document("$gt", "a")),
+                new Document("storedFilename", 1));
+
+        assertUsesIndex(plan, "competition_object");
+    }
+
+    @Test
+    void sharedBucketObjectsUseBucketObjectIndex() {
+        Document plan = winningPlan(new Document("bucket", "videos").append("storedFilename", new Document("$gt", "a")),
+                new Document("storedFilename", 1));
+
+        assertUsesIndex(plan, "bucket_object");
+    }
+
+    @Test
+    void uploaderLookupUsesUploaderIndex() {
+        assertUsesIndex(winningPlan(new Document("uploaderId", "user1"), null), "uploader");
+    }
+
+    @Test
+    void uploadedCopyLookupUsesUploaderContentIndex() {
+        Document plan = winningPlan(new Document("uploaderId", "user1").append("etag", "9e107d9d372bb6826bd81d3542a419d6")
+                .append("actualSize", 100L).append("uploadStatus", "COMPLETE"), null);
+
+        assertUsesIndex(plan, "uploader_content");
+    }
+
+    @Test
+    void expiredPendingScanUsesPartialIndex() {
+        Document plan = winningPlan(new Document("uploadStatus", "PENDING").append("uploadTimestamp", new Document("$lt", new Date())),
+                null);
+
+        assertUsesIndex(plan, "pending_uploads");
+    }
+
+    private static Document winningPlan(Document filter, Document sort) {
+        var find = mongoTemplate.getCollection("videos").block().find(filter);
+        if (sort != null) {
+            find = find.sort(sort);
+        }
+        Document explain = Mono.from(find.explain()).block();
+        return explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+    }
+
+    private static void assertUsesIndex(Document plan, String indexName) {
+        String json = plan.toJson();
+        assertTrue(json.contains("\"IXSCAN\"") && json.contains("\"indexName\": \"" + indexName + "\""),
+                () -> "expected an IXSCAN on " + indexName + " but the plan was " + json);
+    }
+}
@@ -0,0 +1,67 @@
+package com.gbai.storage_ms.repository;
+
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that removeAll reports each document to one deleter, and that claims left by a
+ * deleter that died do not keep documents from being reported forever.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class VideoMetadataRemoveAllTest {
+    @Container
+    private static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static ReactiveMongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(mongo.getReplicaSetUrl());
+        mongoTemplate = new ReactiveMongoTemplate(client, "storagedb");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void reclaimsStaleClaimsAndLeavesLiveOnes() {
+        Date now = Date.from(Instant.now());
+        Date stale = Date.from(Instant.now().minus(Duration.ofMinutes(1)));
+        var videos = mongoTemplate.getCollection(mongoTemplate.getCollectionName(VideoMetadata.class)).block();
+        Mono.from(videos.insertMany(List.of(
+                new Document("_id", "unclaimed"),
+                new Document("_id", "stale").append("removalClaim", "dead").append("removalClaimedAt", stale),
+                new Document("_id", "live").append("removalClaim", "other").append("removalClaimedAt", now)))).block();
+        VideoMetadataRepositoryCustomImpl repository = new VideoMetadataRepositoryCustomImpl(mongoTemplate, Duration.ofSeconds(5));
+
+        Set<String> removed = repository.removeAll(List.of("unclaimed", "stale", "live"))
+                .map(VideoMetadata::getId)
+                .collect(Collectors.toSet())
+                .block();
+
+        assertEquals(Set.of("unclaimed", "stale"), removed);
+        assertEquals(1L, Mono.from(videos.countDocuments(new Document("_id", "live"))).block());
+    }
+}
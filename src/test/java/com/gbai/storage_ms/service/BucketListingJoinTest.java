@@ -0,0 +1,55 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.storage.StoredObject;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BucketListingJoinTest {
+    @Test
+    void testJoinPairsEqualNamesAndKeepsUnmatchedSides() {
+        Flux<VideoMetadata> videos = Flux.just(video("a"), video("c"));
+        Flux<StoredObject> objects = Flux.just(object("b"), object("c"));
+
+        StepVerifier.create(BucketListingJoin.join(videos, objects))
+                .assertNext(entry -> assertTrue(entry.name().equals("a") && entry.video() != null && entry.object() == null))
+                .assertNext(entry -> assertTrue(entry.name().equals("b") && entry.video() == null && entry.object() != null))
+                .assertNext(entry -> assertTrue(entry.name().equals("c") && entry.video() != null && entry.object() != null))
+                .verifyComplete();
+    }
+
+    @Test
+    void testJoinKeepsEveryVideoSharingAnObject() {
+        VideoMetadata original = video("a");
+        VideoMetadata reused = video("a");
+        reused.setId("a-reused");
+        Flux<VideoMetadata> videos = Flux.just(original, reused);
+        Flux<StoredObject> objects = Flux.just(object("a"));
+
+        StepVerifier.create(BucketListingJoin.join(videos, objects))
+                .assertNext(entry -> assertTrue(entry.video() == original && entry.object() != null))
+                .assertNext(entry -> assertTrue(entry.video() == reused && entry.object() != null))
+                .verifyComplete();
+    }
+
+    @Test
+    void testCodePointOrderMatchesUtf8ByteOrder() {
+        // U+FF5E sorts before U+1F600 in UTF-8 and by code point, but after its surrogates in UTF-16
+        assertTrue(BucketListingJoin.CODE_POINT_ORDER.compare("\uFF5E", "\uD83D\uDE00") < 0);
+        assertTrue("\uFF5E".compareTo("\uD83D\uDE00") > 0);
+    }
+
+    private static VideoMetadata video(String storedFilename) {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId(storedFilename);
+        metadata.setStoredFilename(storedFilename);
+        return metadata;
+    }
+
+    private static StoredObject object(String name) {
+        return new StoredObject(name, 0, null, null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.storage.StorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BucketRegistryTest {
+    @Mock
+    private StorageBackend storageBackend;
+    private BucketRegistry bucketRegistry;
+
+    @BeforeEach
+    void setUp() {
+        bucketRegistry = new BucketRegistry(storageBackend, new SimpleMeterRegistry(), Duration.ofMinutes(10), 100);
+    }
+
+    @Test
+    void testKnownBucketSkipsRoundTrip() {
+        when(storageBackend.bucketExists("competition-c1")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(bucketRegistry.ensureBucket("competition-c1")).expectNext("competition-c1").verifyComplete();
+        StepVerifier.create(bucketRegistry.ensureBucket("competition-c1")).expectNext("competition-c1").verifyComplete();
+
+        verify(storageBackend, times(1)).bucketExists("competition-c1");
+    }
+
+    @Test
+    void testConcurrentFirstUploadsCreateOnce() {
+        Sinks.One<Boolean> exists = Sinks.one();
+        when(storageBackend.bucketExists("competition-c1")).thenReturn(exists.asMono());
+        when(storageBackend.makeBucket("competition-c1")).thenReturn(Mono.empty());
+
+        Mono<String> first = bucketRegistry.ensureBucket("competition-c1");
+        Mono<String> second = bucketRegistry.ensureBucket("competition-c1");
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> exists.tryEmitValue(false))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(storageBackend, times(1)).bucketExists("competition-c1");
+        verify(storageBackend, times(1)).makeBucket("competition-c1");
+    }
+
+    @Test
+    void testNoSuchBucketEvictsEntry() {
+        when(storageBackend.bucketExists("competition-c1")).thenReturn(Mono.just(true));
+        bucketRegistry.ensureBucket("competition-c1").block();
+
+        ErrorResponse errorResponse = mock(ErrorResponse.class);
+        when(errorResponse.code()).thenReturn("NoSuchBucket");
+        ErrorResponseException error = mock(ErrorResponseException.class);
+        when(error.errorResponse()).thenReturn(errorResponse);
+        bucketRegistry.evictIfMissing("competition-c1", error);
+
+        bucketRegistry.ensureBucket("competition-c1").block();
+        verify(storageBackend, times(2)).bucketExists("competition-c1");
+    }
+}
@@ -0,0 +1,143 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetadataCacheTest {
+    @Mock
+    private VideoMetadataRepository metadataRepository;
+    private MutableClock clock;
+    private MetadataCache metadataCache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        metadataCache = new MetadataCache(metadataRepository, new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1),
+                Duration.ofMinutes(10), Duration.ofSeconds(5), clock, null, "invalidations");
+    }
+
+    @Test
+    void testCompleteVideoIsServedFromCacheUntilInvalidated() {
+        VideoMetadata video = video("vid1", UploadStatus.COMPLETE);
+        when(metadataRepository.findById("vid1")).thenReturn(Mono.just(video));
+
+        StepVerifier.create(metadataCache.findById("vid1")).expectNext(video).verifyComplete();
+        clock.advance(Duration.ofMinutes(5));
+        StepVerifier.create(metadataCache.findById("vid1")).expectNext(video).verifyComplete();
+        verify(metadataRepository, times(1)).findById("vid1");
+
+        metadataCache.invalidate("vid1");
+        StepVerifier.create(metadataCache.findById("vid1")).expectNext(video).verifyComplete();
+        verify(metadataRepository, times(2)).findById("vid1");
+    }
+
+    @Test
+    void testMissesAndPendingUploadsOnlyLiveForTheShortTtl() {
+        when(metadataRepository.findById("missing")).thenReturn(Mono.empty());
+        when(metadataRepository.findById("vid1")).thenReturn(Mono.just(video("vid1", UploadStatus.PENDING)));
+
+        StepVerifier.create(metadataCache.findById("missing")).verifyComplete();
+        StepVerifier.create(metadataCache.findById("vid1")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(metadataCache.findById("missing")).verifyComplete();
+        StepVerifier.create(metadataCache.findById("vid1")).expectNextCount(1).verifyComplete();
+        verify(metadataRepository, times(1)).findById("missing");
+        verify(metadataRepository, times(1)).findById("vid1");
+
+        clock.advance(Duration.ofSeconds(6));
+        StepVerifier.create(metadataCache.findById("missing")).verifyComplete();
+        StepVerifier.create(metadataCache.findById("vid1")).expectNextCount(1).verifyComplete();
+        verify(metadataRepository, times(2)).findById("missing");
+        verify(metadataRepository, times(2)).findById("vid1");
+    }
+
+    @Test
+    void testConcurrentLookupsShareOneQuery() {
+        Sinks.One<VideoMetadata> result = Sinks.one();
+        when(metadataRepository.findById("vid1")).thenReturn(result.asMono());
+
+        Mono<VideoMetadata> first = metadataCache.findById("vid1");
+        Mono<VideoMetadata> second = metadataCache.findById("vid1");
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> result.tryEmitValue(video("vid1", UploadStatus.COMPLETE)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(metadataRepository, times(1)).findById("vid1");
+    }
+
+    @Test
+    void testLoadOverlappingAnInvalidationIsNotCached() {
+        Sinks.One<VideoMetadata> stale = Sinks.one();
+        when(metadataRepository.findById("vid1"))
+                .thenReturn(stale.asMono())
+                .thenReturn(Mono.just(video("vid1", UploadStatus.COMPLETE)));
+
+        StepVerifier.create(metadataCache.findById("vid1"))
+                .then(() -> {
+                    metadataCache.invalidate("vid1");
+                    stale.tryEmitValue(video("vid1", UploadStatus.PENDING));
+                })
+                .expectNextCount(1)
+                .verifyComplete();
+
+        StepVerifier.create(metadataCache.findById("vid1").map(VideoMetadata::getUploadStatus))
+                .expectNext(UploadStatus.COMPLETE)
+                .verifyComplete();
+    }
+
+    private static VideoMetadata video(String id, UploadStatus status) {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId(id);
+        metadata.setCompetitionId("comp1");
+        metadata.setStoredFilename(id + "-video.mp4");
+        metadata.setUploadStatus(status);
+        return metadata;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.event.OutboxEvent;
+import com.gbai.storage_ms.event.VideoEvent;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.OutboxEventRepository;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetadataWriterTest {
+    @Mock
+    private VideoMetadataRepository metadataRepository;
+    @Mock
+    private OutboxEventRepository outboxRepository;
+    @Mock
+    private MetadataCache metadataCache;
+    @Mock
+    private StorageStatistics statistics;
+    private MetadataWriter metadataWriter;
+
+    @AfterEach
+    void tearDown() {
+        metadataWriter.stop();
+    }
+
+    @Test
+    void testDirectModePropagatesWriteErrors() {
+        metadataWriter = new MetadataWriter(metadataRepository, outboxRepository, metadataCache, statistics, Optional.empty(), "direct", 4, 16, Duration.ofSeconds(5), 10, Duration.ofMillis(10));
+        metadataWriter.start();
+        when(metadataRepository.save(any(VideoMetadata.class))).thenReturn(Mono.error(new IllegalStateException("write failed")));
+
+        StepVerifier.create(metadataWriter.insert(video("vid1")))
+                .expectErrorMessage("write failed")
+                .verify();
+    }
+
+    @Test
+    void testWriteBehindCoalescesIntoOneBulkWrite() {
+        metadataWriter = new MetadataWriter(metadataRepository, outboxRepository, metadataCache, statistics, Optional.empty(), "write-behind", 4, 16, Duration.ofSeconds(5), 3, Duration.ofSeconds(1));
+        metadataWriter.start();
+        when(metadataRepository.bulkWrite(anyCollection(), anyCollection())).thenReturn(Mono.empty());
+
+        StepVerifier.create(Mono.when(
+                        metadataWriter.insert(video("vid1")),
+                        metadataWriter.insert(video("vid2")),
+                        metadataWriter.delete("vid2")))
+                .verifyComplete();
+
+        verify(metadataRepository, times(1)).bulkWrite(
+                argThat(inserts -> inserts.size() == 1 && inserts.iterator().next().getId().equals("vid1")),
+                argThat(deletes -> Set.copyOf(deletes).equals(Set.of("vid2"))));
+        verify(metadataRepository, never()).save(any(VideoMetadata.class));
+        verify(metadataCache).invalidate("vid1");
+        verify(metadataCache).invalidate("vid2");
+    }
+
+    @Test
+    void testDirectModeAppendsEventAfterMetadataWrite() {
+        metadataWriter = new MetadataWriter(metadataRepository, outboxRepository, metadataCache, statistics, Optional.empty(), "direct", 4, 16, Duration.ofSeconds(5), 10, Duration.ofMillis(10));
+        metadataWriter.start();
+        VideoMetadata metadata = video("vid1");
+        when(metadataRepository.save(metadata)).thenReturn(Mono.just(metadata));
+        when(outboxRepository.insert(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(metadataWriter.insert(metadata, VideoEvent.of(VideoEvent.VIDEO_UPLOADED, metadata)))
+                .expectNext(metadata)
+                .verifyComplete();
+
+        var order = inOrder(metadataRepository, outboxRepository);
+        order.verify(metadataRepository).save(metadata);
+        order.verify(outboxRepository).insert(argThat((Iterable<OutboxEvent> events) -> {
+            OutboxEvent event = events.iterator().next();
+            return "vid1".equals(event.getKey()) && event.getSentAt() == null;
+        }));
+    }
+
+    @Test
+    void testWriteBehindAppendsAllEventsOfAFlushAtOnce() {
+        metadataWriter = new MetadataWriter(metadataRepository, outboxRepository, metadataCache, statistics, Optional.empty(), "write-behind", 4, 16, Duration.ofSeconds(5), 2, Duration.ofSeconds(1));
+        metadataWriter.start();
+        when(metadataRepository.bulkWrite(anyCollection(), anyCollection())).thenReturn(Mono.empty());
+        when(outboxRepository.insert(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(Mono.when(
+                        metadataWriter.insert(video("vid1"), VideoEvent.of(VideoEvent.VIDEO_UPLOADED, video("vid1"))),
+                        metadataWriter.delete("vid2", VideoEvent.of(VideoEvent.VIDEO_DELETED, video("vid2")))))
+                .verifyComplete();
+
+        verify(outboxRepository, times(1)).insert(argThat((Iterable<OutboxEvent> events) ->
+                events instanceof List<OutboxEvent> list && list.size() == 2));
+    }
+
+    @Test
+    void testStatisticsOnlyCountVideosThisDeleteRemoved() {
+        metadataWriter = new MetadataWriter(metadataRepository, outboxRepository, metadataCache, statistics, Optional.empty(), "direct", 4, 16, Duration.ofSeconds(5), 10, Duration.ofMillis(10));
+        metadataWriter.start();
+        VideoMetadata removed = video("vid1");
+        // vid2 was deleted concurrently by someone else
+        when(metadataRepository.removeAll(List.of("vid1", "vid2"))).thenReturn(Flux.just(removed));
+        when(statistics.removed(anyCollection())).thenReturn(Mono.empty());
+
+        StepVerifier.create(metadataWriter.deleteVideos(List.of(video("vid1"), video("vid2")), List.of()))
+                .expectNext(List.of(removed))
+                .verifyComplete();
+
+        verify(statistics).removed(List.of(removed));
+    }
+
+    private static VideoMetadata video(String id) {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId(id);
+        metadata.setStoredFilename(id + "-video.mp4");
+        return metadata;
+    }
+}
@@ -0,0 +1,123 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.layout.CompetitionBucketLayout;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.ReconcileCheckpoint;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.ReconcileCheckpointRepository;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import com.gbai.storage_ms.storage.MultipartStorage;
+import com.gbai.storage_ms.storage.StorageBackend;
+import com.gbai.storage_ms.storage.StoredObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrphanReconcilerTest {
+    private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+
+    @Mock
+    private StorageBackend storageBackend;
+    @Mock
+    private VideoMetadataRepository metadataRepository;
+    @Mock
+    private MetadataWriter metadataWriter;
+    @Mock
+    private UploadTracker uploadTracker;
+    @Mock
+    private MultipartStorage multipartStorage;
+    @Mock
+    private ReconcileCheckpointRepository checkpointRepository;
+
+    @Test
+    void testRepairPassCleansBothSidesAndCheckpoints() {
+        OrphanReconciler reconciler = reconciler("repair");
+        VideoMetadata expired = video("a-expired", UploadStatus.PENDING, NOW.minus(Duration.ofDays(1)));
+        VideoMetadata fresh = video("b-fresh", UploadStatus.PENDING, NOW.minus(Duration.ofMinutes(5)));
+        VideoMetadata complete = video("d-complete", UploadStatus.COMPLETE, NOW.minus(Duration.ofDays(1)));
+        when(checkpointRepository.acquire(eq(OrphanReconciler.CHECKPOINT_ID), any(), eq(NOW), any()))
+                .thenReturn(Mono.just(new ReconcileCheckpoint(OrphanReconciler.CHECKPOINT_ID, null, null, null, null, "me", NOW)));
+        when(storageBackend.listBuckets()).thenReturn(Flux.just("competition-comp1", "other-bucket"));
+        when(metadataRepository.findBucketObjectsAfter("competition-comp1", "comp1", null)).thenReturn(Flux.just(expired, fresh, complete));
+        when(storageBackend.listObjects("competition-comp1", null)).thenReturn(Flux.just(
+                new StoredObject("c-stray", 10, "etag", NOW.minus(Duration.ofDays(2))),
+                new StoredObject("d-complete", 10, "etag", NOW.minus(Duration.ofDays(1)))));
+        when(storageBackend.removeObjects("competition-comp1", List.of("c-stray"))).thenReturn(Mono.just(List.of()));
+        when(metadataWriter.deleteVideos(List.of(expired), List.of())).thenReturn(Mono.empty());
+        when(checkpointRepository.advance(any(), any(), any(), any(), any(), any(), any())).thenReturn(Mono.just(new ReconcileCheckpoint()));
+        when(checkpointRepository.release(eq(OrphanReconciler.CHECKPOINT_ID), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(reconciler.runPass()).verifyComplete();
+
+        verify(checkpointRepository).advance(eq(OrphanReconciler.CHECKPOINT_ID), any(), eq("competition-comp1"), eq("d-complete"), eq(NOW), any(), any());
+        verify(uploadTracker, never()).recordUpload(any(), any(), anyLong(), any());
+        verify(storageBackend, never()).listObjects(eq("other-bucket"), any());
+    }
+
+    @Test
+    void testReportModeChangesNothing() {
+        OrphanReconciler reconciler = reconciler("report");
+        VideoMetadata expired = video("a-expired", UploadStatus.PENDING, NOW.minus(Duration.ofDays(1)));
+        when(checkpointRepository.acquire(eq(OrphanReconciler.CHECKPOINT_ID), any(), eq(NOW), any()))
+                .thenReturn(Mono.just(new ReconcileCheckpoint(OrphanReconciler.CHECKPOINT_ID, "competition-comp1", "0", NOW, NOW, "me", NOW)));
+        when(storageBackend.listBuckets()).thenReturn(Flux.just("competition-comp0", "competition-comp1"));
+        when(metadataRepository.findBucketObjectsAfter("competition-comp1", "comp1", "0")).thenReturn(Flux.just(expired));
+        when(storageBackend.listObjects("competition-comp1", "0")).thenReturn(Flux.just(new StoredObject("c-stray", 10, "etag", NOW.minus(Duration.ofDays(2)))));
+        when(checkpointRepository.advance(any(), any(), any(), any(), any(), any(), any())).thenReturn(Mono.just(new ReconcileCheckpoint()));
+        when(checkpointRepository.release(eq(OrphanReconciler.CHECKPOINT_ID), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(reconciler.runPass()).verifyComplete();
+
+        // Resumed in comp1, so comp0 was already done
+        verify(storageBackend, never()).listObjects(eq("competition-comp0"), any());
+        verify(storageBackend, never()).removeObjects(any(), any());
+        verify(metadataWriter, never()).deleteVideos(anyCollection(), anyCollection());
+    }
+
+    @Test
+    void testPassIsSkippedWhileAnotherInstanceHoldsTheLease() {
+        OrphanReconciler reconciler = reconciler("repair");
+        when(checkpointRepository.acquire(any(), any(), any(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(reconciler.runPass()).verifyComplete();
+
+        verifyNoInteractions(storageBackend, metadataRepository);
+    }
+
+    private OrphanReconciler reconciler(String mode) {
+        return new OrphanReconciler(storageBackend, metadataRepository, metadataWriter, uploadTracker, multipartStorage,
+                new PresignedUrlCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(15), Duration.ofMinutes(30), 3600),
+                new ObjectLayouts(CompetitionBucketLayout.NAME, "videos"), checkpointRepository, new SimpleMeterRegistry(), mode, Duration.ofHours(6), 100, 100_000,
+                Duration.ofHours(2), Duration.ofDays(7), Duration.ofHours(1), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    private static VideoMetadata video(String storedFilename, UploadStatus status, Instant uploadedAt) {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId(storedFilename);
+        metadata.setCompetitionId("comp1");
+        metadata.setStoredFilename(storedFilename);
+        metadata.setUploadStatus(status);
+        metadata.setUploadTimestamp(uploadedAt);
+        metadata.setUploadCompletedAt(uploadedAt);
+        metadata.setFileSize(10);
+        return metadata;
+    }
+}
@@ -1,36 +1,77 @@
 package com.gbai.storage_ms.service;
 
+import com.gbai.storage_ms.event.OutboxEvent;
 import com.gbai.storage_ms.event.VideoEvent;
+import com.gbai.storage_ms.layout.CompetitionBucketLayout;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.BatchUploadItem;
+import com.gbai.storage_ms.model.DeletionSummary;
+import com.gbai.storage_ms.model.MultipartUploadResponse;
 import com.gbai.storage_ms.model.PresignedUrlResponse;
+import com.gbai.storage_ms.model.UploadFileRequest;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.UploadVerificationReport;
 import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.model.VideoPage;
+import com.gbai.storage_ms.repository.OutboxEventRepository;
+import com.gbai.storage_ms.repository.StorageStatsRepository;
 import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import com.gbai.storage_ms.storage.MinioIoExecutor;
+import com.gbai.storage_ms.storage.MultipartStorage;
+import com.gbai.storage_ms.storage.SdkUrlPresigner;
+import com.gbai.storage_ms.storage.SyncMinioStorageBackend;
 import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListObjectsArgs;
 import io.minio.MinioClient;
 import io.minio.http.Method;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import io.minio.BucketExistsArgs;
 import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
 import io.minio.StatObjectArgs;
 import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import io.minio.messages.DeleteError;
+import io.minio.messages.Item;
 import io.minio.errors.InsufficientDataException;
 import io.minio.errors.InternalException;
 import io.minio.errors.InvalidResponseException;
 import io.minio.errors.ServerException;
 import io.minio.errors.XmlParserException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.StreamSupport;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,13 +80,49 @@ class StorageServiceTest {
     private MinioClient minioClient;
     @Mock
     private VideoMetadataRepository metadataRepository;
+    @Mock
+    private OutboxEventRepository outboxRepository;
+    @Mock
+    private MultipartStorage multipartStorage;
+    @Mock
+    private StorageStatsRepository statsRepository;
+    private final ObjectLayouts objectLayouts = new ObjectLayouts(CompetitionBucketLayout.NAME, "videos");
+    private MetadataWriter metadataWriter;
     private StorageService storageService;
 
     @BeforeEach
     void setUp() {
-        storageService = new StorageService(minioClient, metadataRepository);
+        MinioIoExecutor minioIo = new MinioIoExecutor(Schedulers.immediate(), Duration.ofSeconds(5), new SimpleMeterRegistry());
+        SyncMinioStorageBackend storageBackend = new SyncMinioStorageBackend(minioClient, minioIo);
+        BucketRegistry bucketRegistry = new BucketRegistry(storageBackend, new SimpleMeterRegistry(), Duration.ofMinutes(10), 100);
+        PresignedUrlCache presignedUrlCache = new PresignedUrlCache(new SimpleMeterRegistry(), true, 100, Duration.ofMinutes(15), Duration.ofMinutes(30), 3600);
+        // Disabled, so every lookup reaches the mocked repository
+        MetadataCache metadataCache = new MetadataCache(metadataRepository, new SimpleMeterRegistry(), false, DataSize.ofMegabytes(1),
+                Duration.ofMinutes(10), Duration.ofSeconds(5), Clock.systemUTC(), null, "invalidations");
+        StorageStatistics statistics = new StorageStatistics(statsRepository, false, Duration.ofSeconds(1), Duration.ZERO, Clock.systemUTC());
+        lenient().when(statsRepository.increment(anyCollection(), any())).thenReturn(Mono.empty());
+        metadataWriter = new MetadataWriter(metadataRepository, outboxRepository, metadataCache, statistics, Optional.empty(), "direct", 4, 64, Duration.ofSeconds(5), 10, Duration.ofMillis(10));
+        metadataWriter.start();
+        lenient().when(outboxRepository.insert(anyIterable())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        storageService = new StorageService(storageBackend, new SdkUrlPresigner(storageBackend), bucketRegistry, objectLayouts, presignedUrlCache, metadataRepository, metadataCache, metadataWriter, multipartStorage,
+                new UploadTracker(metadataRepository, metadataWriter, objectLayouts, "token"),
+                new UploadDeduplicator(metadataRepository, metadataWriter, objectLayouts, false));
         // Manually set the defaultExpiry field since @Value doesn't work in unit tests
         ReflectionTestUtils.setField(storageService, "defaultExpiry", 3600);
+        ReflectionTestUtils.setField(storageService, "maxBatchFiles", 100);
+        ReflectionTestUtils.setField(storageService, "batchSignConcurrency", 4);
+        ReflectionTestUtils.setField(storageService, "cascadeConcurrency", 2);
+        ReflectionTestUtils.setField(storageService, "listSignConcurrency", 4);
+        ReflectionTestUtils.setField(storageService, "maxPageSize", 100);
+        ReflectionTestUtils.setField(storageService, "preferredPartSize", DataSize.ofMegabytes(64));
+        ReflectionTestUtils.setField(storageService, "statusRecheck", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(storageService, "maxUploadWait", Duration.ofSeconds(60));
+        ReflectionTestUtils.setField(storageService, "maxVerifyIds", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        metadataWriter.stop();
     }
 
     @Test
@@ -79,6 +156,50 @@ class StorageServiceTest {
         verify(metadataRepository).save(any(VideoMetadata.class));
     }
 
+    @Test
+    void testGeneratePresignedUploadUrls_BatchInsertsOnce() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenReturn("http://minio/presigned-upload");
+        when(metadataRepository.insertAll(anyCollection())).thenReturn(Flux.empty());
+
+        List<BatchUploadItem> items = storageService.generatePresignedUploadUrls("comp123", "user123", List.of(
+                new UploadFileRequest("a.mp4", "video/mp4", 10),
+                new UploadFileRequest("b.mp4", "video/mp4", 20),
+                new UploadFileRequest("", "video/mp4", 0))).block();
+
+        assertNotNull(items);
+        assertEquals(3, items.size());
+        assertNotNull(items.get(0).getUpload());
+        assertNotNull(items.get(1).getUpload());
+        assertNotNull(items.get(2).getError());
+        verify(minioClient, times(1)).bucketExists(any(BucketExistsArgs.class));
+        verify(metadataRepository, times(1)).insertAll(argThat(docs -> docs.size() == 2));
+    }
+
+    @Test
+    void testGeneratePresignedUploadUrls_RetriesOnlyDocumentsTheBatchDidNotWrite() throws Exception {
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenReturn("http://minio/presigned-upload");
+        List<VideoMetadata> batch = new ArrayList<>();
+        when(metadataRepository.insertAll(anyCollection())).thenAnswer(invocation -> {
+            batch.addAll(invocation.getArgument(0));
+            return Flux.error(new DataAccessResourceFailureException("insertMany failed after the first document"));
+        });
+        when(metadataRepository.findAllById(anyIterable())).thenAnswer(invocation -> Flux.just(batch.get(0)));
+        when(metadataRepository.save(any(VideoMetadata.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        List<BatchUploadItem> items = storageService.generatePresignedUploadUrls("comp123", "user123", List.of(
+                new UploadFileRequest("a.mp4", "video/mp4", 10),
+                new UploadFileRequest("b.mp4", "video/mp4", 20))).block();
+
+        assertNotNull(items);
+        assertNotNull(items.get(0).getUpload());
+        assertNotNull(items.get(1).getUpload());
+        // Only the document the failed insertMany did not write is retried
+        verify(metadataRepository, times(1)).save(any(VideoMetadata.class));
+        verify(metadataRepository).save(argThat(doc -> doc.getId().equals(batch.get(1).getId())));
+    }
+
     @Test
     void testGeneratePresignedDownloadUrl() throws Exception {
         // Given
@@ -102,6 +223,70 @@ class StorageServiceTest {
         assertEquals(3600, response.getExpiry());
     }
 
+    @Test
+    void testGeneratePresignedDownloadUrl_ReusesCachedUrl() throws Exception {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId("vid123");
+        metadata.setCompetitionId("comp123");
+        metadata.setStoredFilename("stored-video.mp4");
+
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenReturn("http://minio/presigned-download");
+        when(metadataRepository.findById("vid123")).thenReturn(Mono.just(metadata));
+
+        PresignedUrlResponse first = storageService.generatePresignedDownloadUrl("vid123").block();
+        PresignedUrlResponse second = storageService.generatePresignedDownloadUrl("vid123").block();
+
+        assertNotNull(second);
+        assertEquals(first.getUrl(), second.getUrl());
+        assertTrue(second.getExpiry() <= 3600);
+        verify(metadataRepository, times(1)).findById("vid123");
+        verify(minioClient, times(1)).getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class));
+    }
+
+    @Test
+    void testListPresignedDownloadUrlsPage_ReturnsCursorWithoutSecondLookup() throws Exception {
+        VideoMetadata first = video("vid1", "comp1");
+        first.setUploadTimestamp(Instant.ofEpochMilli(1000));
+        VideoMetadata second = video("vid2", "comp1");
+        second.setUploadTimestamp(Instant.ofEpochMilli(2000));
+        VideoMetadata third = video("vid3", "comp1");
+        third.setUploadTimestamp(Instant.ofEpochMilli(3000));
+        when(metadataRepository.findCompetitionPage("comp1", null, null, 3)).thenReturn(Flux.just(first, second, third));
+        when(metadataRepository.findCompetitionPage("comp1", Instant.ofEpochMilli(2000), "vid2", 3)).thenReturn(Flux.just(third));
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenReturn("http://minio/presigned-download");
+
+        VideoPage page = storageService.listPresignedDownloadUrlsPage("comp1", null, 2).block();
+        assertNotNull(page);
+        assertEquals(List.of("vid1", "vid2"), page.getItems().stream().map(PresignedUrlResponse::getFileId).toList());
+        assertNotNull(page.getNextCursor());
+
+        VideoPage last = storageService.listPresignedDownloadUrlsPage("comp1", page.getNextCursor(), 2).block();
+        assertNotNull(last);
+        assertEquals(List.of("vid3"), last.getItems().stream().map(PresignedUrlResponse::getFileId).toList());
+        assertNull(last.getNextCursor());
+        verify(metadataRepository, never()).findById(any(String.class));
+    }
+
+    @Test
+    void testListPresignedDownloadUrlsPage_PagesPastLegacyVideosWithoutTimestamp() throws Exception {
+        VideoMetadata first = video("vid1", "comp1");
+        VideoMetadata second = video("vid2", "comp1");
+        VideoMetadata third = video("vid3", "comp1");
+        third.setUploadTimestamp(Instant.ofEpochMilli(3000));
+        when(metadataRepository.findCompetitionPage("comp1", null, null, 3)).thenReturn(Flux.just(first, second, third));
+        when(metadataRepository.findCompetitionPage("comp1", null, "vid2", 3)).thenReturn(Flux.just(third));
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenReturn("http://minio/presigned-download");
+
+        VideoPage page = storageService.listPresignedDownloadUrlsPage("comp1", null, 2).block();
+        assertNotNull(page);
+        assertNotNull(page.getNextCursor());
+
+        VideoPage last = storageService.listPresignedDownloadUrlsPage("comp1", page.getNextCursor(), 2).block();
+        assertNotNull(last);
+        assertEquals(List.of("vid3"), last.getItems().stream().map(PresignedUrlResponse::getFileId).toList());
+        assertNull(last.getNextCursor());
+    }
+
     @Test
     void testDeleteVideo() throws InvalidKeyException, ErrorResponseException, InsufficientDataException, InternalException, InvalidResponseException, NoSuchAlgorithmException, ServerException, XmlParserException, IOException {
         VideoMetadata metadata = new VideoMetadata();
@@ -110,13 +295,69 @@ class StorageServiceTest {
         metadata.setStoredFilename("vid1-video.mp4");
 
         when(metadataRepository.findById("vid1")).thenReturn(Mono.just(metadata));
-        when(metadataRepository.deleteById("vid1")).thenReturn(Mono.empty());
+        when(metadataRepository.removeAll(List.of("vid1"))).thenReturn(Flux.just(metadata));
 
         StepVerifier.create(storageService.deleteVideo("vid1"))
                 .verifyComplete();
 
         verify(minioClient).removeObject(any(RemoveObjectArgs.class));
-        verify(metadataRepository).deleteById("vid1");
+        verify(metadataRepository).removeAll(List.of("vid1"));
+    }
+
+    @Test
+    void testDeleteVideo_RemovalFailureKeepsMetadataAndPropagates() throws Exception {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId("vid1");
+        metadata.setCompetitionId("comp1");
+        metadata.setStoredFilename("vid1-video.mp4");
+
+        when(metadataRepository.findById("vid1")).thenReturn(Mono.just(metadata));
+        doThrow(new IOException("connection reset")).when(minioClient).removeObject(any(RemoveObjectArgs.class));
+
+        StepVerifier.create(storageService.deleteVideo("vid1"))
+                .expectError(IOException.class)
+                .verify();
+
+        verify(metadataRepository, never()).removeAll(anyCollection());
+    }
+
+    @Test
+    void testDeleteUserVideos_RemovesPerBucketInBulk() {
+        when(metadataRepository.findEventRefsByUploaderId("user1")).thenReturn(Flux.just(
+                video("vid1", "comp1"), video("vid2", "comp1"), video("vid3", "comp2")));
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenReturn(List.of());
+        when(metadataRepository.removeAll(anyCollection())).thenReturn(Flux.empty());
+
+        StepVerifier.create(storageService.deleteUserVideos("user1"))
+                .expectNext(new DeletionSummary(3, 3, 0))
+                .verifyComplete();
+
+        verify(minioClient, times(2)).removeObjects(any(RemoveObjectsArgs.class));
+        verify(metadataRepository, times(1)).removeAll(anyCollection());
+        verify(metadataRepository, never()).deleteById(any(String.class));
+        verify(outboxRepository, times(1)).insert(argThat((Iterable<OutboxEvent> events) ->
+                StreamSupport.stream(events.spliterator(), false)
+                        .filter(event -> VideoEvent.VIDEO_DELETED.equals(event.getEvent().getEventType()))
+                        .count() == 3));
+    }
+
+    @Test
+    void testDeleteUserVideos_SharedObjectsOnlyCountVideosThisDeleteRemoved() {
+        ReflectionTestUtils.setField(storageService, "uploadDeduplicator",
+                new UploadDeduplicator(metadataRepository, metadataWriter, objectLayouts, true));
+        VideoMetadata vid1 = video("vid1", "comp1");
+        VideoMetadata vid3 = video("vid3", "comp1");
+        when(metadataRepository.findEventRefsByUploaderId("user1")).thenReturn(Flux.just(vid1, video("vid2", "comp1"), vid3));
+        // vid2 was deleted concurrently by someone else
+        when(metadataRepository.removeAll(List.of("vid1", "vid2", "vid3"))).thenReturn(Flux.just(vid1, vid3));
+        when(metadataRepository.findObjectRefs(anyCollection(), anyCollection(), anyCollection())).thenReturn(Flux.empty());
+        DeleteError failed = mock(DeleteError.class);
+        when(failed.objectName()).thenReturn(vid3.getStoredFilename());
+        when(minioClient.removeObjects(any(RemoveObjectsArgs.class))).thenReturn(List.of(new Result<>(failed)));
+
+        StepVerifier.create(storageService.deleteUserVideos("user1"))
+                .expectNext(new DeletionSummary(3, 1, 2))
+                .verifyComplete();
     }
 
     @Test
@@ -143,8 +384,8 @@ class StorageServiceTest {
         metadata.setStoredFilename("vid1-video.mp4");
 
         when(metadataRepository.findById("vid1")).thenReturn(Mono.just(metadata));
-        when(minioClient.statObject(any(StatObjectArgs.class)))
-                .thenThrow(new RuntimeException("Object not found"));
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenThrow(new ErrorResponseException(
+                new ErrorResponse("NoSuchKey", "Object not found", "competition-comp1", "vid1-video.mp4", null, null, null), null, null));
 
         StepVerifier.create(storageService.verifyVideoUpload("vid1"))
                 .expectNext(false)
@@ -159,4 +400,164 @@ class StorageServiceTest {
                 .expectNext(false)
                 .verifyComplete();
     }
-} 
\ No newline at end of file
+
+    @Test
+    void testVerifyVideoUpload_AnswersFromTrackedStatus() throws Exception {
+        VideoMetadata metadata = video("vid1", "comp1");
+        metadata.setUploadStatus(UploadStatus.COMPLETE);
+        when(metadataRepository.findById("vid1")).thenReturn(Mono.just(metadata));
+
+        StepVerifier.create(storageService.verifyVideoUpload("vid1"))
+                .expectNext(true)
+                .verifyComplete();
+
+        verify(minioClient, never()).statObject(any(StatObjectArgs.class));
+    }
+
+    @Test
+    void testAwaitVideoUpload_ReturnsWhenNotificationArrives() {
+        String videoId = UUID.randomUUID().toString();
+        VideoMetadata pending = video(videoId, "comp1");
+        pending.setFileSize(1024);
+        pending.setUploadStatus(UploadStatus.PENDING);
+        VideoMetadata complete = video(videoId, "comp1");
+        complete.setUploadStatus(UploadStatus.COMPLETE);
+        when(metadataRepository.findById(videoId)).thenReturn(Mono.just(pending));
+        when(metadataRepository.recordUpload(eq(videoId), eq(pending.getStoredFilename()), eq(UploadStatus.COMPLETE), eq(1024L), eq("abc"), any()))
+                .thenReturn(Mono.just(complete));
+        UploadTracker uploadTracker = (UploadTracker) ReflectionTestUtils.getField(storageService, "uploadTracker");
+
+        StepVerifier.create(storageService.awaitVideoUpload(videoId, Duration.ofSeconds(30)))
+                .then(() -> uploadTracker.recordUpload("competition-comp1", pending.getStoredFilename(), 1024, "\"abc\"").subscribe())
+                .expectNext(true)
+                .verifyComplete();
+    }
+
+    @Test
+    void testVerifyCompetitionUploads_MergesOneListingWithMetadata() {
+        VideoMetadata present = video("vid1", "comp1");
+        present.setFileSize(10);
+        VideoMetadata resized = video("vid2", "comp1");
+        resized.setFileSize(10);
+        VideoMetadata missing = video("vid3", "comp1");
+        when(metadataRepository.findCompetitionObjectsAfter("comp1", null)).thenReturn(Flux.just(present, resized, missing));
+        when(minioClient.listObjects(any(ListObjectsArgs.class))).thenReturn(List.of(
+                listed("stray-object", 5), listed(present.getStoredFilename(), 10), listed(resized.getStoredFilename(), 7)));
+
+        UploadVerificationReport report = storageService.verifyCompetitionUploads("comp1").block();
+
+        assertNotNull(report);
+        assertEquals(3, report.getChecked());
+        assertEquals(List.of("vid1"), report.getPresent());
+        assertEquals(List.of("vid2"), report.getSizeMismatched());
+        assertEquals(List.of("vid3"), report.getMissing());
+        verify(minioClient, never()).statObject(any(StatObjectArgs.class));
+        verify(metadataRepository, never()).findById(any(String.class));
+    }
+
+    @Test
+    void testPartSize_GrowsToStayWithinPartLimit() {
+        long mib = DataSize.ofMegabytes(1).toBytes();
+        assertEquals(64 * mib, StorageService.partSize(100 * mib, 64 * mib));
+        assertEquals(5 * mib, StorageService.partSize(mib, mib));
+        long huge = DataSize.ofTerabytes(1).toBytes();
+        long partSize = StorageService.partSize(huge, 64 * mib);
+        assertTrue(StorageService.partCount(huge, partSize) <= StorageService.MAX_PARTS);
+        assertEquals(0, partSize % mib);
+    }
+
+    @Test
+    void testInitiateMultipartUpload_PresignsEveryPart() throws Exception {
+        long mib = DataSize.ofMegabytes(1).toBytes();
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(true);
+        when(multipartStorage.createMultipartUpload(eq("competition-comp1"), anyString(), eq("video/mp4"))).thenReturn(Mono.just("upload-1"));
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenReturn("http://minio/part");
+        when(metadataRepository.save(any(VideoMetadata.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        MultipartUploadResponse response = storageService.initiateMultipartUpload("comp1", "user1", "video.mp4", "video/mp4", 130 * mib).block();
+
+        assertNotNull(response);
+        assertEquals("upload-1", response.getUploadId());
+        assertEquals(64 * mib, response.getPartSize());
+        assertEquals(3, response.getPartCount());
+        assertEquals(List.of(1, 2, 3), response.getPendingParts().stream().map(part -> part.getPartNumber()).toList());
+        assertEquals(2 * mib, response.getPendingParts().get(2).getSize());
+        verify(metadataRepository).save(argThat(metadata -> "upload-1".equals(metadata.getMultipartUploadId())));
+    }
+
+    @Test
+    void testGetMultipartUpload_OnlyPresignsMissingParts() throws Exception {
+        long mib = DataSize.ofMegabytes(1).toBytes();
+        VideoMetadata metadata = multipartVideo("vid1", 130 * mib, 64 * mib);
+        when(metadataRepository.findById("vid1")).thenReturn(Mono.just(metadata));
+        when(multipartStorage.listParts("competition-comp1", metadata.getStoredFilename(), "upload-1"))
+                .thenReturn(Flux.just(new Part(2, "etag-2")));
+        when(minioClient.getPresignedObjectUrl(any(GetPresignedObjectUrlArgs.class))).thenReturn("http://minio/part");
+
+        MultipartUploadResponse response = storageService.getMultipartUpload("vid1").block();
+
+        assertNotNull(response);
+        assertEquals(List.of(2), response.getUploadedParts().stream().map(part -> part.getPartNumber()).toList());
+        assertEquals(List.of(1, 3), response.getPendingParts().stream().map(part -> part.getPartNumber()).toList());
+    }
+
+    @Test
+    void testCompleteMultipartUpload_FailsWhilePartsAreMissing() {
+        long mib = DataSize.ofMegabytes(1).toBytes();
+        VideoMetadata metadata = multipartVideo("vid1", 130 * mib, 64 * mib);
+        when(metadataRepository.findById("vid1")).thenReturn(Mono.just(metadata));
+        when(multipartStorage.listParts("competition-comp1", metadata.getStoredFilename(), "upload-1"))
+                .thenReturn(Flux.just(new Part(1, "etag-1"), new Part(3, "etag-3")));
+
+        StepVerifier.create(storageService.completeMultipartUpload("vid1"))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException rse && rse.getStatusCode() == HttpStatus.CONFLICT)
+                .verify();
+        verify(multipartStorage, never()).completeMultipartUpload(any(), any(), any(), anyList());
+        verify(metadataRepository, never()).recordUpload(any(), any(), any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testCompleteMultipartUpload_FailsWhenPartSizesDifferFromTheFileSize() {
+        long mib = DataSize.ofMegabytes(1).toBytes();
+        VideoMetadata metadata = multipartVideo("vid1", 130 * mib, 64 * mib);
+        when(metadataRepository.findById("vid1")).thenReturn(Mono.just(metadata));
+        when(multipartStorage.listParts("competition-comp1", metadata.getStoredFilename(), "upload-1"))
+                .thenReturn(Flux.just(uploadedPart(1, 64 * mib), uploadedPart(2, 64 * mib), uploadedPart(3, 20 * mib)));
+
+        StepVerifier.create(storageService.completeMultipartUpload("vid1"))
+                .expectErrorMatches(e -> e instanceof ResponseStatusException rse && rse.getStatusCode() == HttpStatus.CONFLICT)
+                .verify();
+        verify(multipartStorage, never()).completeMultipartUpload(any(), any(), any(), anyList());
+        verify(metadataRepository, never()).recordUpload(any(), any(), any(), anyLong(), any(), any());
+    }
+
+    private static VideoMetadata video(String id, String competitionId) {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId(id);
+        metadata.setCompetitionId(competitionId);
+        metadata.setStoredFilename(id + "-video.mp4");
+        return metadata;
+    }
+
+    private static Result<Item> listed(String name, long size) {
+        Item item = mock(Item.class);
+        when(item.objectName()).thenReturn(name);
+        when(item.size()).thenReturn(size);
+        return new Result<>(item);
+    }
+
+    private static Part uploadedPart(int number, long size) {
+        Part part = mock(Part.class);
+        when(part.partNumber()).thenReturn(number);
+        when(part.partSize()).thenReturn(size);
+        return part;
+    }
+
+    private static VideoMetadata multipartVideo(String id, long fileSize, long partSize) {
+        VideoMetadata metadata = video(id, "comp1");
+        metadata.setFileSize(fileSize);
+        metadata.setPartSize(partSize);
+        metadata.setMultipartUploadId("upload-1");
+        return metadata;
+    }
+}
@@ -0,0 +1,102 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.model.StorageStats;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.StorageStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StorageStatisticsTest {
+    @Mock
+    private StorageStatsRepository statsRepository;
+
+    @Test
+    void testOnlyCompletedUploadsAreCounted() {
+        StorageStatistics statistics = statistics(false);
+        when(statsRepository.increment(anyCollection(), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(statistics.removed(List.of(video("vid1", UploadStatus.PENDING, null), video("vid2", UploadStatus.COMPLETE, 100L))))
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<StorageStats.Delta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(statsRepository).increment(deltas.capture(), any());
+        assertEquals(Set.of(
+                new StorageStats.Delta(StorageStats.COMPETITION, "comp1", -1, -100),
+                new StorageStats.Delta(StorageStats.UPLOADER, "user1", -1, -100)), Set.copyOf(deltas.getValue()));
+    }
+
+    @Test
+    void testHotCountersAreReadLocallyAndFlushedAsOneBatch() {
+        StorageStatistics statistics = statistics(true);
+        when(statsRepository.findById("competition:comp1")).thenReturn(Mono.empty());
+
+        statistics.uploaded(video("vid1", UploadStatus.COMPLETE, 100L)).block();
+        statistics.uploaded(video("vid2", UploadStatus.COMPLETE, 50L)).block();
+        verifyNoInteractions(statsRepository);
+
+        StepVerifier.create(statistics.competition("comp1"))
+                .assertNext(stats -> {
+                    assertEquals(2, stats.getVideos());
+                    assertEquals(150, stats.getBytes());
+                })
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<StorageStats.Delta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        when(statsRepository.increment(deltas.capture(), any())).thenReturn(Mono.empty());
+        statistics.flush().block();
+        assertEquals(Set.of(
+                new StorageStats.Delta(StorageStats.COMPETITION, "comp1", 2, 150),
+                new StorageStats.Delta(StorageStats.UPLOADER, "user1", 2, 150)), Set.copyOf(deltas.getValue()));
+    }
+
+    @Test
+    void testFailedFlushKeepsTheChanges() {
+        StorageStatistics statistics = statistics(true);
+        statistics.uploaded(video("vid1", UploadStatus.COMPLETE, 100L)).block();
+        when(statsRepository.increment(anyCollection(), any()))
+                .thenReturn(Mono.error(new IllegalStateException("write failed")))
+                .thenReturn(Mono.empty());
+
+        statistics.flush().block();
+        statistics.flush().block();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<StorageStats.Delta>> deltas = ArgumentCaptor.forClass(Collection.class);
+        verify(statsRepository, times(2)).increment(deltas.capture(), any());
+        assertEquals(deltas.getAllValues().get(0).size(), deltas.getAllValues().get(1).size());
+    }
+
+    private StorageStatistics statistics(boolean hotCounters) {
+        return new StorageStatistics(statsRepository, hotCounters, Duration.ofSeconds(1), Duration.ZERO, Clock.systemUTC());
+    }
+
+    private static VideoMetadata video(String id, UploadStatus status, Long actualSize) {
+        VideoMetadata video = new VideoMetadata();
+        video.setId(id);
+        video.setCompetitionId("comp1");
+        video.setUploaderId("user1");
+        video.setUploadStatus(status);
+        video.setActualSize(actualSize);
+        return video;
+    }
+}
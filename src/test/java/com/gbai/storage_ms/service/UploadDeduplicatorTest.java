@@ -0,0 +1,111 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.layout.CompetitionBucketLayout;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadDeduplicatorTest {
+    private static final String MD5 = "9e107d9d372bb6826bd81d3542a419d6";
+
+    @Mock
+    private VideoMetadataRepository metadataRepository;
+    @Mock
+    private MetadataWriter metadataWriter;
+    private UploadDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new UploadDeduplicator(metadataRepository, metadataWriter,
+                new ObjectLayouts(CompetitionBucketLayout.NAME, "videos"), true);
+    }
+
+    @Test
+    void testReuseReferencesTheUploadersStoredCopy() {
+        VideoMetadata copy = video("vid1", "comp1", "vid1-final.mp4");
+        copy.setActualSize(100L);
+        copy.setEtag(MD5);
+        when(metadataRepository.findUploadedCopy("user1", MD5, 100)).thenReturn(Mono.just(copy));
+        when(metadataWriter.insert(any(VideoMetadata.class), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(metadataRepository.findObjectRefs(Set.of("competition-comp1"), Set.of("comp1"), Set.of("vid1-final.mp4")))
+                .thenAnswer(invocation -> Flux.just(copy));
+
+        StepVerifier.create(deduplicator.reuse("comp2", "user1", "semi-final.mp4", "video/mp4", 100, MD5.toUpperCase()))
+                .assertNext(reference -> {
+                    assertEquals("comp2", reference.getCompetitionId());
+                    assertEquals("competition-comp1", reference.getBucket());
+                    assertEquals("vid1-final.mp4", reference.getStoredFilename());
+                    assertEquals(UploadStatus.COMPLETE, reference.getUploadStatus());
+                })
+                .verifyComplete();
+        verify(metadataWriter, never()).delete(any(VideoMetadata.class), any());
+    }
+
+    @Test
+    void testReuseBacksOutWhenTheCopyDisappeared() {
+        VideoMetadata copy = video("vid1", "comp1", "vid1-final.mp4");
+        copy.setActualSize(100L);
+        copy.setEtag(MD5);
+        when(metadataRepository.findUploadedCopy("user1", MD5, 100)).thenReturn(Mono.just(copy));
+        when(metadataWriter.insert(any(VideoMetadata.class), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(metadataWriter.delete(any(VideoMetadata.class), any())).thenReturn(Mono.empty());
+        // Only the new reference itself is left
+        when(metadataRepository.findObjectRefs(anyCollection(), anyCollection(), anyCollection()))
+                .thenAnswer(invocation -> Flux.empty());
+
+        StepVerifier.create(deduplicator.reuse("comp2", "user1", "semi-final.mp4", "video/mp4", 100, MD5))
+                .verifyComplete();
+        verify(metadataWriter).delete(any(VideoMetadata.class), any());
+    }
+
+    @Test
+    void testReuseRejectsHashesThatAreNotMd5() {
+        StepVerifier.create(deduplicator.reuse("comp2", "user1", "semi-final.mp4", "video/mp4", 100, "sha256:abc"))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+        verifyNoInteractions(metadataRepository);
+    }
+
+    @Test
+    void testOnlyObjectsWithoutRemainingReferencesAreUnreferenced() {
+        VideoMetadata shared = video("vid1", "comp1", "vid1-final.mp4");
+        VideoMetadata alone = video("vid2", "comp1", "vid2-other.mp4");
+        VideoMetadata sharedTwice = video("vid3", "comp1", "vid1-final.mp4");
+        when(metadataRepository.findObjectRefs(eq(Set.of("competition-comp1")), eq(Set.of("comp1")), anyCollection()))
+                .thenReturn(Flux.just(video("vid4", "comp2", "vid1-final.mp4")));
+
+        StepVerifier.create(deduplicator.unreferenced(List.of(shared, alone, sharedTwice)))
+                .expectNext(List.of(alone))
+                .verifyComplete();
+    }
+
+    private static VideoMetadata video(String id, String competitionId, String storedFilename) {
+        VideoMetadata video = new VideoMetadata();
+        video.setId(id);
+        video.setCompetitionId(competitionId);
+        video.setUploaderId("user1");
+        video.setStoredFilename(storedFilename);
+        video.setBucket("competition-comp1");
+        video.setUploadStatus(UploadStatus.COMPLETE);
+        return video;
+    }
+}
@@ -0,0 +1,121 @@
+package com.gbai.storage_ms.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gbai.storage_ms.layout.CompetitionBucketLayout;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.layout.SharedBucketLayout;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.repository.VideoMetadataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadTrackerTest {
+    private static final String VIDEO_ID = "0b7e4a52-8c1e-4d2a-9a57-3f1f2c9d7e10";
+    private static final String OBJECT = VIDEO_ID + "-my video.mp4";
+    private static final ObjectLayouts OBJECT_LAYOUTS = new ObjectLayouts(CompetitionBucketLayout.NAME, "videos");
+
+    @Mock
+    private VideoMetadataRepository metadataRepository;
+    @Mock
+    private MetadataWriter metadataWriter;
+    private UploadTracker uploadTracker;
+
+    @BeforeEach
+    void setUp() {
+        uploadTracker = new UploadTracker(metadataRepository, metadataWriter, OBJECT_LAYOUTS, "s3cr3t");
+    }
+
+    @Test
+    void testWebhookRequiresConfiguredToken() {
+        assertTrue(uploadTracker.acceptsWebhook("Bearer s3cr3t"));
+        assertTrue(uploadTracker.acceptsWebhook("s3cr3t"));
+        assertFalse(uploadTracker.acceptsWebhook("Bearer wrong"));
+        assertFalse(uploadTracker.acceptsWebhook(null));
+        assertFalse(new UploadTracker(metadataRepository, metadataWriter, OBJECT_LAYOUTS, "").acceptsWebhook(""));
+    }
+
+    @Test
+    void testObjectCreatedNotificationMarksVideoComplete() throws Exception {
+        VideoMetadata metadata = video(1024);
+        when(metadataRepository.findById(VIDEO_ID)).thenReturn(Mono.just(metadata));
+        when(metadataWriter.recordUpload(eq(VIDEO_ID), eq(OBJECT), eq(UploadStatus.COMPLETE), eq(1024L), eq("d41d8cd9"), any()))
+                .thenReturn(Mono.just(metadata));
+
+        StepVerifier.create(uploadTracker.handleNotification(notification("s3:ObjectCreated:Put", 1024)))
+                .expectNext(1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testSizeMismatchMarksVideoFailedWithoutEvent() throws Exception {
+        VideoMetadata metadata = video(2048);
+        when(metadataRepository.findById(VIDEO_ID)).thenReturn(Mono.just(metadata));
+        when(metadataWriter.recordUpload(eq(VIDEO_ID), eq(OBJECT), eq(UploadStatus.FAILED), eq(1024L), any(), isNull()))
+                .thenReturn(Mono.just(metadata));
+
+        StepVerifier.create(uploadTracker.handleNotification(notification("s3:ObjectCreated:Put", 1024)))
+                .expectNext(1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void testSharedBucketUploadIsMatchedByItsRecordedBucket() {
+        String key = new SharedBucketLayout("videos").objectKey("comp1", VIDEO_ID, "my video.mp4");
+        VideoMetadata metadata = video(1024);
+        metadata.setStoredFilename(key);
+        metadata.setBucket("videos");
+        when(metadataRepository.findById(VIDEO_ID)).thenReturn(Mono.just(metadata));
+        when(metadataWriter.recordUpload(eq(VIDEO_ID), eq(key), eq(UploadStatus.COMPLETE), eq(1024L), eq("d41d8cd9"), any()))
+                .thenReturn(Mono.just(metadata));
+
+        StepVerifier.create(uploadTracker.recordUpload("videos", key, 1024, "d41d8cd9"))
+                .expectNext(metadata)
+                .verifyComplete();
+        // An object with the same file id in the competition bucket is not this video's upload
+        StepVerifier.create(uploadTracker.recordUpload("competition-comp1", OBJECT, 1024, "d41d8cd9"))
+                .verifyComplete();
+    }
+
+    @Test
+    void testOtherEventsAreIgnored() throws Exception {
+        StepVerifier.create(uploadTracker.handleNotification(notification("s3:ObjectRemoved:Delete", 1024)))
+                .expectNext(0L)
+                .verifyComplete();
+
+        verifyNoInteractions(metadataRepository, metadataWriter);
+    }
+
+    private static VideoMetadata video(long fileSize) {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setId(VIDEO_ID);
+        metadata.setCompetitionId("comp1");
+        metadata.setStoredFilename(OBJECT);
+        metadata.setFileSize(fileSize);
+        metadata.setUploadStatus(UploadStatus.PENDING);
+        return metadata;
+    }
+
+    private static JsonNode notification(String eventName, long size) throws Exception {
+        String key = VIDEO_ID + "-my+video.mp4";
+        return new ObjectMapper().readTree("""
+                {"EventName": "%s", "Key": "competition-comp1/%s", "Records": [{
+                  "eventName": "%s",
+                  "s3": {"bucket": {"name": "competition-comp1"},
+                         "object": {"key": "%s", "size": %d, "eTag": "\\"d41d8cd9\\""}}}]}
+                """.formatted(eventName, key, eventName, key, size));
+    }
+}
@@ -0,0 +1,118 @@
+package com.gbai.storage_ms.service;
+
+import com.gbai.storage_ms.layout.CompetitionBucketLayout;
+import com.gbai.storage_ms.layout.ObjectLayouts;
+import com.gbai.storage_ms.model.UploadStatus;
+import com.gbai.storage_ms.model.VideoMetadata;
+import com.gbai.storage_ms.storage.StorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VideoStreamerTest {
+    private static final DataBufferFactory BUFFERS = DefaultDataBufferFactory.sharedInstance;
+
+    @Mock
+    private MetadataCache metadataCache;
+    @Mock
+    private StorageBackend storageBackend;
+    private VideoStreamer streamer;
+
+    @BeforeEach
+    void setUp() {
+        streamer = new VideoStreamer(metadataCache, storageBackend, new ObjectLayouts(CompetitionBucketLayout.NAME, "videos"),
+                new SimpleMeterRegistry(), true, DataSize.ofKilobytes(16), 4);
+        VideoMetadata video = new VideoMetadata();
+        video.setId("vid1");
+        video.setCompetitionId("comp1");
+        video.setStoredFilename("vid1-final.mp4");
+        video.setContentType("video/mp4");
+        video.setUploadStatus(UploadStatus.COMPLETE);
+        video.setActualSize(1000L);
+        video.setEtag("abc123");
+        when(metadataCache.findById("vid1")).thenReturn(Mono.just(video));
+    }
+
+    @Test
+    void testRangeIsReadFromItsOffset() {
+        when(storageBackend.getObject(eq("competition-comp1"), eq("vid1-final.mp4"), eq(100L), eq(400L), any(), anyInt()))
+                .thenReturn(Flux.just(BUFFERS.wrap(new byte[400])));
+
+        ResponseEntity<Flux<DataBuffer>> response = streamer.stream("vid1",
+                MockServerHttpRequest.get("/storage/stream/vid1").header(HttpHeaders.RANGE, "bytes=100-499").build(),
+                new MockServerHttpResponse()).block();
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 100-499/1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(400, response.getHeaders().getContentLength());
+        assertEquals(400, response.getBody().map(DataBuffer::readableByteCount).reduce(0, Integer::sum).block());
+    }
+
+    @Test
+    void testCurrentCopyIsNotSentAgain() {
+        ResponseEntity<?> response = streamer.stream("vid1",
+                MockServerHttpRequest.get("/storage/stream/vid1").ifNoneMatch("\"abc123\"").build(), new MockServerHttpResponse()).block();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(storageBackend, never()).getObject(any(), any(), anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testRangePastTheEndIsNotSatisfiable() {
+        ResponseEntity<?> response = streamer.stream("vid1",
+                MockServerHttpRequest.get("/storage/stream/vid1").header(HttpHeaders.RANGE, "bytes=1000-").build(),
+                new MockServerHttpResponse()).block();
+
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testStreamsAreCountedWhenTheResponseIsBuilt() {
+        List<MockServerHttpResponse> responses = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            MockServerHttpResponse response = new MockServerHttpResponse();
+            responses.add(response);
+            streamer.stream("vid1", MockServerHttpRequest.get("/storage/stream/vid1").build(), response).block();
+        }
+
+        StepVerifier.create(streamer.stream("vid1", MockServerHttpRequest.get("/storage/stream/vid1").build(), new MockServerHttpResponse()))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+
+        // An error response committed instead of the body gives the slot back
+        responses.get(0).setComplete().block();
+        StepVerifier.create(streamer.stream("vid1", MockServerHttpRequest.get("/storage/stream/vid1").build(), new MockServerHttpResponse()))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+}
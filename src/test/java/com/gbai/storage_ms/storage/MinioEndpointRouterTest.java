@@ -0,0 +1,95 @@
+package com.gbai.storage_ms.storage;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinioEndpointRouterTest {
+    private HttpServer node;
+    private final List<String> hostHeaders = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        node = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        node.createContext("/", exchange -> {
+            hostHeaders.add(exchange.getRequestHeaders().getFirst("Host"));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        node.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        node.stop(0);
+    }
+
+    @Test
+    void testFailsOverToTheHealthyNodeAndKeepsTheSignedHost() throws IOException {
+        String deadNode = "http://127.0.0.1:" + unusedPort();
+        String liveNode = "http://127.0.0.1:" + node.getAddress().getPort();
+        MinioEndpointRouter router = new MinioEndpointRouter(List.of(deadNode, liveNode), Duration.ofSeconds(10), new SimpleMeterRegistry());
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(router).build();
+
+        for (int i = 0; i < 3; i++) {
+            Request request = new Request.Builder()
+                    .url("http://minio.example:9000/competition-comp1/video.mp4")
+                    .header("Host", "minio.example:9000")
+                    .put(RequestBody.create(new byte[0]))
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                assertEquals(200, response.code());
+            }
+        }
+
+        assertEquals(List.of("minio.example:9000", "minio.example:9000", "minio.example:9000"), hostHeaders);
+    }
+
+    @Test
+    void testRequestIsOutstandingUntilItsBodyIsClosed() throws IOException {
+        String liveNode = "http://127.0.0.1:" + node.getAddress().getPort();
+        String otherNode = "http://127.0.0.1:" + unusedPort();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MinioEndpointRouter router = new MinioEndpointRouter(List.of(liveNode, otherNode), Duration.ofSeconds(10), meterRegistry);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(router).build();
+        Request request = new Request.Builder()
+                .url("http://minio.example:9000/competition-comp1/video.mp4")
+                .get()
+                .build();
+
+        Response response = client.newCall(request).execute();
+        double whileOpen = meterRegistry.get("minio.endpoint.outstanding").tag("endpoint", liveNode).gauge().value();
+        response.close();
+
+        assertEquals(1, whileOpen);
+        assertEquals(0, meterRegistry.get("minio.endpoint.outstanding").tag("endpoint", liveNode).gauge().value());
+    }
+
+    @Test
+    void testSingleEndpointIsNotRouted() {
+        MinioEndpointRouter router = new MinioEndpointRouter(List.of("http://minio:9000"), Duration.ofSeconds(10), new SimpleMeterRegistry());
+
+        assertFalse(router.isEnabled());
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}